@@ -1,4 +1,5 @@
 /* Setting up PROD DB */
+/* Tables only: the query indexes are added at startup by the versioned scripts in src/main/resources/db/migration */
 create database prod;
 use prod;
 
@@ -0,0 +1,65 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FareEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareBenchmark {
+
+    @Param({"CAR", "BIKE"})
+    private ParkingType parkingType;
+
+    @Param({"false", "true"})
+    private boolean recurringVehicle;
+
+    private FareCalculatorService fareCalculatorService;
+    private Ticket ticket;
+    private long inTimeMillis;
+    private long outTimeMillis;
+
+    @Setup
+    public void setUp() {
+        // the loyalty status is passed in, the repository is never called
+        fareCalculatorService = new FareCalculatorService(null);
+        ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(1_700_000_000_000L));
+        ticket.setOutTime(new Date(1_700_000_000_000L + TimeUnit.MINUTES.toMillis(135)));
+        inTimeMillis = ticket.getInTime().getTime();
+        outTimeMillis = ticket.getOutTime().getTime();
+    }
+
+    @Benchmark
+    public double calculateFare() {
+        fareCalculatorService.calculateFare(ticket, recurringVehicle);
+        return ticket.getPrice();
+    }
+
+    @Benchmark
+    public long priceCents() {
+        return FareEngine.priceCents(parkingType, inTimeMillis, outTimeMillis, recurringVehicle);
+    }
+}
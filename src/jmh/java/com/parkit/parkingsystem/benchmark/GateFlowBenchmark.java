@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedDatabase;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.ParkingBackend;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full entry followed by the exit of the same vehicle through {@link ParkingService},
+ * on the embedded engine with a journal that writes nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GateFlowBenchmark {
+
+    private static final int LOT_SIZE = 1000;
+    private static final int VEHICLES = 10_000;
+
+    private final String[] vehicleRegNumbers = new String[VEHICLES];
+    private final Date inTime = new Date(1_700_000_000_000L);
+    private final Date outTime = new Date(1_700_000_000_000L + TimeUnit.MINUTES.toMillis(95));
+    private EmbeddedDatabase database;
+    private ParkingService parkingService;
+    private int next;
+
+    // a fresh database per iteration: the engine keeps every ticket in memory
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int parkingNumber = 1; parkingNumber <= LOT_SIZE; parkingNumber++) {
+            parkingSpots.add(new ParkingSpot(parkingNumber, ParkingType.CAR, true));
+        }
+        for (int i = 0; i < VEHICLES; i++) {
+            vehicleRegNumbers[i] = "GATE" + i;
+        }
+        database = EmbeddedDatabase.open(new InMemoryJournal(), parkingSpots);
+        parkingService = ParkingBackend.embedded(database).newParkingService();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    @Benchmark
+    public void entryAndExit(Blackhole blackhole) {
+        String vehicleRegNumber = vehicleRegNumbers[next];
+        next = next + 1 == VEHICLES ? 0 : next + 1;
+        EntryResult entryResult = parkingService.enterVehicle(ParkingType.CAR, vehicleRegNumber, inTime);
+        ExitResult exitResult = parkingService.exitVehicle(vehicleRegNumber, outTime);
+        blackhole.consume(entryResult);
+        blackhole.consume(exitResult);
+    }
+}
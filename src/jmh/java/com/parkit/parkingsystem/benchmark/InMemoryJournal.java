@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedJournal;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Journal that keeps nothing, so the embedded engine measures the service and index code without disk I/O.
+ */
+class InMemoryJournal implements EmbeddedJournal {
+
+    @Override
+    public void replay(Visitor visitor) {
+    }
+
+    @Override
+    public void appendSpot(int parkingNumber, ParkingType parkingType, boolean available) {
+    }
+
+    @Override
+    public void appendTicket(Ticket ticket) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DAO lookups answered from the in-memory indexes, on a lot where the first half of the spots is taken.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexedDaoBenchmark {
+
+    @Param({"100", "10000"})
+    private int lotSize;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private String parkedVehicle;
+
+    @Setup
+    public void setUp() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        List<Ticket> openTickets = new ArrayList<>();
+        List<String> recurringVehicles = new ArrayList<>();
+        for (int parkingNumber = 1; parkingNumber <= lotSize; parkingNumber++) {
+            boolean taken = parkingNumber <= lotSize / 2;
+            parkingSpots.add(new ParkingSpot(parkingNumber, ParkingType.CAR, !taken));
+            if (taken) {
+                Ticket ticket = new Ticket();
+                ticket.setId(parkingNumber);
+                ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+                ticket.setVehicleRegNumber("CAR" + parkingNumber);
+                ticket.setInTime(new Date(1_700_000_000_000L));
+                openTickets.add(ticket);
+                recurringVehicles.add("CAR" + parkingNumber);
+            }
+        }
+        // no DataBaseConfig: every call must be answered by the indexes
+        parkingSpotDAO = new ParkingSpotDAO(null);
+        parkingSpotDAO.restoreAvailabilityIndex(parkingSpots);
+        ticketDAO = new TicketDAO(null);
+        ticketDAO.restoreIndexes(openTickets, recurringVehicles);
+        parkedVehicle = "CAR" + (lotSize / 4);
+    }
+
+    @Benchmark
+    public int getNextAvailableSlot() {
+        return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+
+    @Benchmark
+    public OpenTicket getOpenTicket() {
+        return ticketDAO.getOpenTicket(parkedVehicle);
+    }
+
+    @Benchmark
+    public boolean isRecurringVehicle() {
+        return ticketDAO.isRecurringVehicle(parkedVehicle);
+    }
+}
@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketBenchmark {
+
+    private final Date inTime = new Date(1_700_000_000_000L);
+    private Ticket ticket;
+
+    @Setup
+    public void setUp() {
+        ticket = newTicket();
+        ticket.setOutTime(new Date(1_700_000_000_000L + TimeUnit.HOURS.toMillis(2)));
+    }
+
+    @Benchmark
+    public Ticket newTicket() {
+        Ticket created = new Ticket();
+        created.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        created.setVehicleRegNumber("ABCDEF");
+        created.setPrice(0);
+        created.setInTime(inTime);
+        created.setOutTime(null);
+        return created;
+    }
+
+    @Benchmark
+    public Ticket copyTicket() {
+        return new Ticket(ticket);
+    }
+
+    @Benchmark
+    public long readTimes() {
+        return ticket.getOutTime().getTime() - ticket.getInTime().getTime();
+    }
+}
@@ -1,13 +1,98 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.EventReplay;
+import com.parkit.parkingsystem.service.GateHttpServer;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.ParkingBackend;
+import com.parkit.parkingsystem.service.TariffLoader;
+import com.parkit.parkingsystem.service.TicketRerating;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.concurrent.ForkJoinPool;
+
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String args[]){
         logger.info("Initializing Parking System");
+        if (args.length == 2 && "--replay".equals(args[0])) {
+            replay(args[1]);
+            return;
+        }
+        if (args.length == 2 && "--http".equals(args[0])) {
+            serve(Integer.parseInt(args[1]));
+            return;
+        }
+        if (args.length >= 1 && "--rerate".equals(args[0])) {
+            rerate(args.length == 2 && "write".equals(args[1]));
+            return;
+        }
         InteractiveShell.loadInterface();
     }
+
+    /**
+     * Prices every closed ticket of the MySQL database again with the current fares, parkit.tariff.file if set.
+     * Only reports the difference unless writePrices is set.
+     */
+    private static void rerate(boolean writePrices) {
+        String tariffFile = System.getProperty(ParkingBackend.TARIFF_FILE_PROPERTY);
+        if (tariffFile != null && !new TariffLoader(Paths.get(tariffFile), ZoneId.systemDefault()).load()) {
+            return;
+        }
+        DataBaseConfig dataBaseConfig = new DataBaseConfig();
+        // below the connection pool size, each worker holds a connection while it reads
+        ForkJoinPool forkJoinPool = new ForkJoinPool(Math.min(8, Runtime.getRuntime().availableProcessors()));
+        try {
+            TicketRerating ticketRerating = new TicketRerating(new TicketDAO(dataBaseConfig), forkJoinPool,
+                    1000, 50_000, writePrices);
+            System.out.println(ticketRerating.rerateAll());
+        } finally {
+            forkJoinPool.shutdown();
+            dataBaseConfig.shutdown();
+        }
+    }
+
+    /**
+     * Runs the gate API until the process is stopped, parkit.http.threads sets the number of worker threads.
+     */
+    private static void serve(int port) {
+        try {
+            ParkingBackend parkingBackend = ParkingBackend.fromSystemProperties();
+            GateHttpServer gateHttpServer = new GateHttpServer(parkingBackend.newParkingService(),
+                    new InetSocketAddress(port), Integer.getInteger("parkit.http.threads", 256));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                gateHttpServer.stop();
+                parkingBackend.shutdown();
+            }));
+            gateHttpServer.start();
+        } catch (Exception e) {
+            logger.error("Unable to start the gate API on port " + port, e);
+        }
+    }
+
+    /**
+     * Replays a file of gate events, see {@link EventReplay} for the format.
+     */
+    private static void replay(String eventFile) {
+        ParkingBackend parkingBackend = null;
+        try (Reader events = Files.newBufferedReader(Paths.get(eventFile), StandardCharsets.UTF_8)) {
+            parkingBackend = ParkingBackend.fromSystemProperties();
+            EventReplay eventReplay = new EventReplay(parkingBackend.newParkingService(), ZoneId.systemDefault());
+            System.out.println(eventReplay.replay(events));
+        } catch (Exception e) {
+            logger.error("Unable to replay " + eventFile, e);
+        } finally {
+            if (parkingBackend != null) {
+                parkingBackend.shutdown();
+            }
+        }
+    }
 }
@@ -0,0 +1,319 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of JDBC connections.
+ * Borrowed connections are proxies: calling close() hands the physical connection back to the pool
+ * instead of closing it, so the DAOs keep their open/close pattern unchanged.
+ * Each physical connection keeps its own {@link StatementCache}.
+ */
+public class ConnectionPool {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PhysicalConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder validationFailureCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final StatementCache.Counters statementCacheCounters = new StatementCache.Counters();
+
+    public ConnectionPool(ConnectionFactory connectionFactory, int maxSize, long idleTimeoutMillis,
+                          long borrowTimeoutMillis, int validationTimeoutSeconds, int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + " ms waiting for a DB connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a DB connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+        try {
+            PhysicalConnection physical = takeIdleConnection();
+            if (physical == null) {
+                physical = new PhysicalConnection(connectionFactory.create(),
+                        new StatementCache(statementCacheSize, statementCacheCounters));
+                createdCount.increment();
+            }
+            borrowCount.increment();
+            activeCount.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        for (PhysicalConnection idleConnection : idleConnections) {
+            if (idleConnection.isExpired(now, idleTimeoutMillis) && idleConnections.remove(idleConnection)) {
+                destroy(idleConnection);
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        PhysicalConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            destroy(idleConnection);
+        }
+        logger.info("Connection pool closed: " + this);
+    }
+
+    private PhysicalConnection takeIdleConnection() {
+        long now = System.currentTimeMillis();
+        PhysicalConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            if (idleConnection.isExpired(now, idleTimeoutMillis)) {
+                destroy(idleConnection);
+            } else if (!isValid(idleConnection.connection)) {
+                validationFailureCount.increment();
+                destroy(idleConnection);
+            } else {
+                return idleConnection;
+            }
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PhysicalConnection physical) {
+        activeCount.decrementAndGet();
+        physical.statementCache.releaseAll();
+        try {
+            if (closed || physical.connection.isClosed()) {
+                destroy(physical);
+                return;
+            }
+            if (!physical.connection.getAutoCommit()) {
+                physical.connection.rollback();
+                physical.connection.setAutoCommit(true);
+            }
+            physical.idleSince = System.currentTimeMillis();
+            idleConnections.offerFirst(physical);
+        } catch (SQLException e) {
+            logger.error("Discarding DB connection that could not be reset", e);
+            destroy(physical);
+        } finally {
+            permits.release();
+        }
+        evictIdleConnections();
+    }
+
+    private void destroy(PhysicalConnection physical) {
+        destroyedCount.increment();
+        physical.statementCache.close();
+        try {
+            physical.connection.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing pooled connection", e);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(max, waitNanos)) {
+                break;
+            }
+        }
+    }
+
+    private Connection wrap(PhysicalConnection physical) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new PooledConnectionHandler(physical));
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount.sum();
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailureCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.sum();
+        return borrows == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / borrows;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheCounters.getHits();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheCounters.getMisses();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheCounters.getEvictions();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool[active=" + getActiveCount() + ", idle=" + getIdleCount() + ", max=" + maxSize
+                + ", borrowed=" + getBorrowCount() + ", created=" + getCreatedCount()
+                + ", destroyed=" + getDestroyedCount() + ", validationFailures=" + getValidationFailureCount()
+                + ", timeouts=" + getTimeoutCount() + ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis())
+                + ", maxWaitMs=" + String.format("%.3f", getMaxWaitMillis())
+                + ", statementCacheHits=" + getStatementCacheHits()
+                + ", statementCacheMisses=" + getStatementCacheMisses() + "]";
+    }
+
+    private static final class PhysicalConnection {
+        private final Connection connection;
+        private final StatementCache statementCache;
+        private long idleSince;
+
+        private PhysicalConnection(Connection connection, StatementCache statementCache) {
+            this.connection = connection;
+            this.statementCache = statementCache;
+        }
+
+        private boolean isExpired(long now, long idleTimeoutMillis) {
+            return now - idleSince > idleTimeoutMillis;
+        }
+    }
+
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final PhysicalConnection physical;
+        private boolean released;
+
+        private PooledConnectionHandler(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close": {
+                    if (!released) {
+                        released = true;
+                        release(physical);
+                    }
+                    return null;
+                }
+                case "isClosed":
+                    return released;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical.connection + "]";
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement") && args[0] instanceof String) {
+                if (args.length == 1) {
+                    return physical.statementCache.prepare(physical.connection, (Connection) proxy,
+                            (String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (args.length == 2 && args[1] instanceof Integer) {
+                    return physical.statementCache.prepare(physical.connection, (Connection) proxy,
+                            (String) args[0], (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(physical.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,26 +1,101 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.util.Metrics;
+import com.parkit.parkingsystem.util.OperationStats;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
 
+/**
+ * Pooled MySQL connections. Statements are traced by a {@link QueryTracer} unless parkit.sql.trace=false,
+ * executions slower than parkit.sql.slowThresholdMillis (default 200) go to the slow query log.
+ */
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = 30 * 1000;
+    private static final int POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    private static final long DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 200;
+
+    public static final String SQL_TRACE_PROPERTY = "parkit.sql.trace";
+    public static final String SLOW_QUERY_THRESHOLD_PROPERTY = "parkit.sql.slowThresholdMillis";
+
+    private static final OperationStats getConnectionStats = Metrics.get("DataBaseConfig.getConnection");
+
+    private volatile ConnectionPool connectionPool;
+    private final QueryTracer queryTracer = Boolean.parseBoolean(System.getProperty(SQL_TRACE_PROPERTY, "true"))
+            ? new QueryTracer(Long.getLong(SLOW_QUERY_THRESHOLD_PROPERTY, DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS))
+            : null;
+
+    /**
+     * Borrows a pooled connection, the wait for a free one is recorded as DataBaseConfig.getConnection.
+     */
     public Connection getConnection() throws ClassNotFoundException, SQLException {
+        long start = System.nanoTime();
+        try {
+            return getConnectionPool().borrow();
+        } catch (ClassNotFoundException | SQLException | RuntimeException e) {
+            getConnectionStats.recordError();
+            throw e;
+        } finally {
+            getConnectionStats.record(System.nanoTime() - start);
+        }
+    }
+
+    public ConnectionPool getConnectionPool() throws ClassNotFoundException {
+        ConnectionPool pool = connectionPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = connectionPool;
+                if (pool == null) {
+                    Class.forName("com.mysql.cj.jdbc.Driver");
+                    pool = new ConnectionPool(this::openTracedConnection, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MILLIS,
+                            POOL_BORROW_TIMEOUT_MILLIS, POOL_VALIDATION_TIMEOUT_SECONDS, STATEMENT_CACHE_SIZE);
+                    connectionPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    protected Connection openConnection() throws SQLException {
         logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
         return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+                "jdbc:mysql://localhost:3306/prod?useServerPrepStmts=true","root","rootroot");
+    }
+
+    private Connection openTracedConnection() throws SQLException {
+        Connection connection = openConnection();
+        return queryTracer != null ? queryTracer.trace(connection) : connection;
+    }
+
+    /**
+     * @return the per-query statistics, or null when tracing is disabled
+     */
+    public QueryTracer getQueryTracer() {
+        return queryTracer;
+    }
+
+    public synchronized void shutdown() {
+        if (queryTracer != null) {
+            logger.info("Query statistics:" + queryTracer.report());
+        }
+        if (connectionPool != null) {
+            connectionPool.close();
+            connectionPool = null;
+        }
     }
 
     public void closeConnection(Connection con){
         if(con!=null){
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.debug("Closing DB connection");
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
@@ -31,7 +106,7 @@ public class DataBaseConfig {
         if(ps!=null){
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -42,7 +117,7 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
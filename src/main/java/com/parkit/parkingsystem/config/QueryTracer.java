@@ -0,0 +1,273 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.util.OperationStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Wraps physical connections so every statement execution is timed per SQL fingerprint: the query text
+ * with literals replaced by ? and whitespace collapsed. Rows are the update count, or the rows read from the result set.
+ * Executions slower than the threshold go to the SlowQueryLog logger with the shapes of their bind parameters,
+ * the types and string lengths but never the values, so plates do not end up in the logs.
+ */
+public class QueryTracer {
+
+    private static final Logger slowQueryLog = LogManager.getLogger("SlowQueryLog");
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w?])-?\\d+(?:\\.\\d+)?");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public static class QueryStats {
+        private final String fingerprint;
+        private final OperationStats latency;
+        private final LongAdder rows = new LongAdder();
+
+        private QueryStats(String fingerprint) {
+            this.fingerprint = fingerprint;
+            this.latency = new OperationStats(fingerprint);
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getErrorCount() {
+            return latency.getErrorCount();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public double getTotalMillis() {
+            return latency.getMeanMicros() * latency.getCount() / 1000;
+        }
+
+        public OperationStats getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f ms total, count=%d errors=%d rows=%d mean=%.1fus p99=%dus max=%dus: %s",
+                    getTotalMillis(), getCount(), getErrorCount(), getRows(), latency.getMeanMicros(),
+                    latency.getP99Micros(), latency.getMaxMicros(), fingerprint);
+        }
+    }
+
+    private final long slowThresholdNanos;
+    private final Map<String, QueryStats> statistics = new ConcurrentHashMap<>();
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    public QueryTracer(long slowThresholdMillis) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    public Connection trace(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * @return the statistics of every fingerprint executed so far, by fingerprint
+     */
+    public Map<String, QueryStats> getStatistics() {
+        return Collections.unmodifiableMap(new TreeMap<>(statistics));
+    }
+
+    /**
+     * @return one line per fingerprint, the most time consuming first
+     */
+    public String report() {
+        List<QueryStats> byTotalTime = new ArrayList<>(statistics.values());
+        byTotalTime.sort(Comparator.comparingDouble(QueryStats::getTotalMillis).reversed());
+        StringBuilder report = new StringBuilder();
+        for (QueryStats queryStats : byTotalTime) {
+            report.append(System.lineSeparator()).append(queryStats);
+        }
+        return report.toString();
+    }
+
+    static String fingerprint(String sql) {
+        String fingerprint = STRING_LITERAL.matcher(sql).replaceAll("?");
+        fingerprint = NUMBER_LITERAL.matcher(fingerprint).replaceAll("?");
+        return WHITESPACE.matcher(fingerprint).replaceAll(" ").trim();
+    }
+
+    private QueryStats statsOf(String sql) {
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = fingerprint(sql);
+            // DBConstants queries are few, ad hoc statements with inlined values must not grow the map forever
+            if (fingerprints.size() < 10_000) {
+                fingerprints.put(sql, fingerprint);
+            }
+        }
+        return statistics.computeIfAbsent(fingerprint, QueryStats::new);
+    }
+
+    private static String shapeOf(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence) {
+            return "String(" + ((CharSequence) value).length() + ")";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class},
+                        new StatementHandler((Statement) result, (Connection) proxy, (String) args[0]));
+            }
+            if (result instanceof Statement && method.getName().equals("createStatement")) {
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                        new StatementHandler((Statement) result, (Connection) proxy, null));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final Connection owner;
+        private final String preparedSql;
+        private final List<String> parameterShapes = new ArrayList<>();
+        private int batchSize;
+
+        private StatementHandler(Statement statement, Connection owner, String preparedSql) {
+            this.statement = statement;
+            this.owner = owner;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return owner;
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && preparedSql != null) {
+                recordParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameterShapes.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            }
+            if (!name.startsWith("execute")) {
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            QueryStats queryStats = statsOf(sql == null ? "<batch>" : sql);
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = method.invoke(statement, args);
+                return result instanceof ResultSet ? countRows((ResultSet) result, (Statement) proxy, queryStats) : result;
+            } catch (InvocationTargetException e) {
+                queryStats.latency.recordError();
+                throw e.getCause();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                queryStats.latency.record(elapsed);
+                long rows = rowsOf(result);
+                queryStats.rows.add(rows);
+                if (elapsed >= slowThresholdNanos) {
+                    // the rows of a query are only known once its result set is read
+                    slowQueryLog.warn(String.format("%.1f ms%s%s params=%s: %s", elapsed / 1e6,
+                            result instanceof ResultSet ? "" : " rows=" + rows,
+                            batchSize > 0 ? " batch=" + batchSize : "", parameterShapes, queryStats.fingerprint));
+                }
+                if (name.equals("executeBatch")) {
+                    batchSize = 0;
+                }
+            }
+        }
+
+        private void recordParameter(int index, Object value) {
+            while (parameterShapes.size() < index) {
+                parameterShapes.add("?");
+            }
+            parameterShapes.set(index - 1, shapeOf(value));
+        }
+
+        private long rowsOf(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+                return rows;
+            }
+            return 0;
+        }
+
+        private ResultSet countRows(ResultSet resultSet, Statement statementProxy, QueryStats queryStats) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("getStatement")) {
+                            return statementProxy;
+                        }
+                        try {
+                            Object result = method.invoke(resultSet, args);
+                            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                                queryStats.rows.increment();
+                            }
+                            return result;
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
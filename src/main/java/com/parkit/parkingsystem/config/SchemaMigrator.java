@@ -0,0 +1,212 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the versioned scripts of db/migration in order and records each applied version
+ * in the schema_version table, so every script runs exactly once per database.
+ * Script names follow V&lt;version&gt;__&lt;description&gt;.sql.
+ * MySQL commits DDL as it goes, so a script that failed half way is simply run again: indexes and columns
+ * already created are skipped. A named lock keeps two nodes starting together from migrating at the same time.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    private static final String MIGRATION_LOCATION = "db/migration/";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    private static final Pattern CREATE_INDEX =
+            Pattern.compile("create\\s+(?:unique\\s+)?index\\s+(\\w+)\\s+on\\s+(\\w+).*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ADD_COLUMN =
+            Pattern.compile("alter\\s+table\\s+(\\w+)\\s+add\\s+column\\s+(\\w+)\\s.*", Pattern.CASE_INSENSITIVE);
+    private static final List<String> MIGRATIONS = Arrays.asList(
+            "V1__create_schema.sql",
+            "V2__add_query_indexes.sql",
+            "V3__one_open_ticket_per_vehicle.sql");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final List<String> migrations;
+
+    public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+        this(dataBaseConfig, MIGRATIONS);
+    }
+
+    SchemaMigrator(DataBaseConfig dataBaseConfig, List<String> migrations) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.migrations = migrations;
+    }
+
+    /**
+     * @return the number of scripts applied, or -1 if a script failed
+     */
+    public int migrate() {
+        Connection con = null;
+        boolean locked = false;
+        try {
+            con = dataBaseConfig.getConnection();
+            locked = acquireLock(con);
+            if (!locked) {
+                logger.error("Timed out waiting for another node to finish migrating the schema");
+                return -1;
+            }
+            Set<Integer> appliedVersions = getAppliedVersions(con);
+            int applied = 0;
+            for (String migration : migrations) {
+                int version = getVersion(migration);
+                if (appliedVersions.contains(version)) {
+                    continue;
+                }
+                logger.info("Applying schema migration " + migration);
+                for (String sql : readStatements(migration)) {
+                    if (isAlreadyApplied(con, sql)) {
+                        logger.info("Skipping statement already applied: " + sql);
+                        continue;
+                    }
+                    try (Statement statement = con.createStatement()) {
+                        // data fixes have to be visible to whoever runs the lot, DDL reports no rows
+                        if (!statement.execute(sql) && statement.getUpdateCount() > 0) {
+                            logger.warn(statement.getUpdateCount() + " row(s) changed by " + sql);
+                        }
+                    }
+                }
+                recordVersion(con, version, getDescription(migration));
+                applied++;
+            }
+            logger.info("Schema is up to date, " + applied + " migration(s) applied");
+            return applied;
+        } catch (Exception ex) {
+            logger.error("Error migrating the schema", ex);
+            return -1;
+        } finally {
+            if (locked) {
+                releaseLock(con);
+            }
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private boolean acquireLock(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.ACQUIRE_MIGRATION_LOCK)) {
+            ps.setInt(1, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void releaseLock(Connection con) {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.RELEASE_MIGRATION_LOCK)) {
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            logger.error("Error releasing the schema migration lock", e);
+        }
+    }
+
+    /**
+     * @return true for a create index whose index already exists, or an add column whose column already exists
+     */
+    private boolean isAlreadyApplied(Connection con, String sql) throws SQLException {
+        Matcher createIndex = CREATE_INDEX.matcher(sql);
+        if (createIndex.matches()) {
+            return exists(con, DBConstants.INDEX_EXISTS, createIndex.group(2), createIndex.group(1));
+        }
+        Matcher addColumn = ADD_COLUMN.matcher(sql);
+        if (addColumn.matches()) {
+            return exists(con, DBConstants.COLUMN_EXISTS, addColumn.group(1), addColumn.group(2));
+        }
+        return false;
+    }
+
+    private boolean exists(Connection con, String query, String tableName, String name) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            ps.setString(1, tableName);
+            ps.setString(2, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private Set<Integer> getAppliedVersions(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(DBConstants.CREATE_SCHEMA_VERSION);
+        }
+        Set<Integer> versions = new HashSet<>();
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_SCHEMA_VERSIONS);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private void recordVersion(Connection con, int version, String description) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION)) {
+            ps.setInt(1, version);
+            ps.setString(2, description);
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            ps.execute();
+        }
+    }
+
+    static int getVersion(String migration) {
+        int separator = migration.indexOf("__");
+        if (!migration.startsWith("V") || separator < 2) {
+            throw new IllegalArgumentException("Invalid migration name " + migration);
+        }
+        return Integer.parseInt(migration.substring(1, separator));
+    }
+
+    static String getDescription(String migration) {
+        return migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' ');
+    }
+
+    static List<String> readStatements(String migration) throws IOException {
+        InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(MIGRATION_LOCATION + migration);
+        if (in == null) {
+            throw new IOException("Migration script not found: " + migration);
+        }
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                current.append(trimmed).append(' ');
+                if (trimmed.endsWith(";")) {
+                    statements.add(current.substring(0, current.lastIndexOf(";")).trim());
+                    current.setLength(0);
+                }
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+}
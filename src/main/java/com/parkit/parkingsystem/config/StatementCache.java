@@ -0,0 +1,203 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * A cached statement is lent out behind a proxy whose close() only clears the parameters,
+ * so the next call with the same DBConstants query reuses the already prepared statement.
+ * Not thread safe: a physical connection is only used by the thread that borrowed it.
+ */
+public class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("StatementCache");
+
+    public static class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+    }
+
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<String, CachedStatement> statements;
+    private final List<Lease> leases = new ArrayList<>();
+
+    public StatementCache(int maxSize, Counters counters) {
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public PreparedStatement prepare(Connection physical, Connection owner, String sql, int autoGeneratedKeys)
+            throws SQLException {
+        if (maxSize <= 0) {
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+        String key = autoGeneratedKeys + ":" + sql;
+        CachedStatement cached = statements.get(key);
+        if (cached == null) {
+            counters.misses.increment();
+            cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+            statements.put(key, cached);
+            evictEldest();
+        } else if (cached.inUse) {
+            // the same query is already open on this connection: hand out a plain statement
+            counters.misses.increment();
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        } else {
+            counters.hits.increment();
+        }
+        cached.inUse = true;
+        Lease lease = new Lease(cached, owner);
+        leases.add(lease);
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, lease);
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Called when the logical connection goes back to the pool: every statement lent out
+     * during that borrow becomes available again, even if the caller closed the connection first.
+     */
+    public void releaseAll() {
+        for (Lease lease : new ArrayList<>(leases)) {
+            lease.release();
+        }
+        leases.clear();
+    }
+
+    public void close() {
+        releaseAll();
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+    }
+
+    private void evictEldest() {
+        Iterator<CachedStatement> iterator = statements.values().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement eldest = iterator.next();
+            if (!eldest.inUse) {
+                iterator.remove();
+                counters.evictions.increment();
+                closeQuietly(eldest.statement);
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing cached prepared statement", e);
+        }
+    }
+
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection owner;
+        private ResultSet lastResultSet;
+        private boolean closed;
+
+        private Lease(CachedStatement cached, Connection owner) {
+            this.cached = cached;
+            this.owner = owner;
+        }
+
+        private void release() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            leases.remove(this);
+            try {
+                if (lastResultSet != null) {
+                    lastResultSet.close();
+                }
+                cached.statement.clearParameters();
+                // rows added by a batch that failed part-way must not be executed by the next borrower
+                cached.statement.clearBatch();
+                cached.inUse = false;
+            } catch (SQLException e) {
+                logger.error("Dropping cached prepared statement that could not be reset", e);
+                statements.values().remove(cached);
+                closeQuietly(cached.statement);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.statement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                Object result = method.invoke(cached.statement, args);
+                if (result instanceof ResultSet) {
+                    lastResultSet = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
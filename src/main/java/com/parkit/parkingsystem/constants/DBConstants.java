@@ -3,11 +3,37 @@ package com.parkit.parkingsystem.constants;
 public class DBConstants {
 
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String COUNT_AVAILABLE_PARKING_SPOTS = "select count(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true";
 
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
+    public static final String CLOSE_OPEN_TICKET = "update ticket set PRICE=?, OUT_TIME=? where VEHICLE_REG_NUMBER=? and OUT_TIME is NULL";
     public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc limit 1";
     public static final String RECURRING_VEHICLE = "select count(ID) from ticket where VEHICLE_REG_NUMBER = ? and OUT_TIME is not NULL";
+    public static final String GET_OPEN_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, p.TYPE, (select count(h.ID) from ticket h where h.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and h.OUT_TIME is not NULL) from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.VEHICLE_REG_NUMBER=? and t.OUT_TIME is NULL order by t.IN_TIME desc limit 1";
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, p.TYPE, t.VEHICLE_REG_NUMBER from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.OUT_TIME is NULL";
+    public static final String CLOSE_TICKET_AND_FREE_SPOT = "update ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER set t.PRICE=?, t.OUT_TIME=?, p.AVAILABLE = true where t.ID=? and t.OUT_TIME is NULL";
+    public static final String GET_VEHICLES_EXITED_SINCE = "select distinct VEHICLE_REG_NUMBER from ticket where OUT_TIME >= ?";
+    public static final String GET_LAST_TICKET_ID = "select max(ID) from ticket";
+    public static final String GET_RECURRING_VEHICLES = "select distinct VEHICLE_REG_NUMBER from ticket where OUT_TIME is not NULL";
+    public static final String GET_CLOSED_TICKET_PAGE = "select t.ID, t.PARKING_NUMBER, p.TYPE, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME from ticket t, parking p where p.PARKING_NUMBER = t.PARKING_NUMBER and t.ID > ? and t.ID <= ? and t.OUT_TIME is not NULL order by t.ID limit ?";
+    public static final String GET_FIRST_EXITS_OF_TICKET_RANGE = "select VEHICLE_REG_NUMBER, min(OUT_TIME) from ticket where OUT_TIME is not NULL and VEHICLE_REG_NUMBER in (select VEHICLE_REG_NUMBER from ticket where ID > ? and ID <= ?) group by VEHICLE_REG_NUMBER";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
     public static final String INSIDE = "select count(ID) from ticket where VEHICLE_REG_NUMBER = ? and OUT_TIME is NULL";
+
+    public static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version(VERSION int PRIMARY KEY, DESCRIPTION varchar(100) NOT NULL, APPLIED_ON DATETIME NOT NULL)";
+    public static final String GET_SCHEMA_VERSIONS = "select VERSION from schema_version";
+    public static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, APPLIED_ON) values(?,?,?)";
+    public static final String ACQUIRE_MIGRATION_LOCK = "select GET_LOCK('parkit_schema_migration', ?)";
+    public static final String RELEASE_MIGRATION_LOCK = "select RELEASE_LOCK('parkit_schema_migration')";
+    public static final String INDEX_EXISTS = "select count(*) from information_schema.statistics where table_schema = database() and table_name = ? and index_name = ?";
+    public static final String COLUMN_EXISTS = "select count(*) from information_schema.columns where table_schema = database() and table_name = ? and column_name = ?";
+
+    /**
+     * MySQL error code of an insert rejected by a unique index, such as the one allowing a single open ticket per vehicle.
+     */
+    public static final int DUPLICATE_ENTRY_ERROR = 1062;
 }
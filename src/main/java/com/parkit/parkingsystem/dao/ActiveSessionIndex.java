@@ -0,0 +1,68 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.CompactTicket;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Open tickets of the vehicles currently inside, by registration number.
+ * Bounded by the lot capacity, so it is cheap to keep in memory and lets "is this vehicle inside"
+ * be answered without querying the ticket table. Tickets are kept in their compact form and copied in and out.
+ */
+public class ActiveSessionIndex {
+
+    private final ConcurrentHashMap<String, CompactTicket> openTickets = new ConcurrentHashMap<>();
+
+    public ActiveSessionIndex(Collection<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            put(ticket);
+        }
+    }
+
+    public void put(Ticket ticket) {
+        openTickets.put(ticket.getVehicleRegNumber(), CompactTicket.of(ticket));
+    }
+
+    /**
+     * @return false, leaving the index unchanged, if the vehicle already has an open ticket
+     */
+    public boolean putIfAbsent(Ticket ticket) {
+        return openTickets.putIfAbsent(ticket.getVehicleRegNumber(), CompactTicket.of(ticket)) == null;
+    }
+
+    /**
+     * Sets the generated id of an open ticket saved before its id was known, unless the vehicle left meanwhile.
+     */
+    public void assignId(String vehicleRegNumber, int id) {
+        openTickets.computeIfPresent(vehicleRegNumber, (key, ticket) -> ticket.getId() == 0 ? ticket.withId(id) : ticket);
+    }
+
+    public void remove(String vehicleRegNumber) {
+        openTickets.remove(vehicleRegNumber);
+    }
+
+    public boolean contains(String vehicleRegNumber) {
+        return openTickets.containsKey(vehicleRegNumber);
+    }
+
+    public Ticket get(String vehicleRegNumber) {
+        CompactTicket ticket = openTickets.get(vehicleRegNumber);
+        return ticket == null ? null : ticket.toTicket();
+    }
+
+    public List<Ticket> getOpenTickets() {
+        List<Ticket> tickets = new ArrayList<>(openTickets.size());
+        for (CompactTicket ticket : openTickets.values()) {
+            tickets.add(ticket.toTicket());
+        }
+        return tickets;
+    }
+
+    public int size() {
+        return openTickets.size();
+    }
+}
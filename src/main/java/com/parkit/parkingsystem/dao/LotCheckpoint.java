@@ -0,0 +1,143 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the in-memory indexes of the DAOs to a {@link LotSnapshot} and restores them at startup.
+ * A restore reads the snapshot, then only the spots, the open tickets and the vehicles that left since the snapshot,
+ * instead of the whole recurring-vehicle history.
+ */
+public class LotCheckpoint {
+
+    private static final Logger logger = LogManager.getLogger("LotCheckpoint");
+
+    /**
+     * Exits are timed by the gates, not by the database: the catch-up also reads exits timed this long before
+     * the snapshot, for gate clocks running behind and exits still queued for write-behind when it was taken.
+     */
+    static final long CATCH_UP_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Path snapshotFile;
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private ScheduledExecutorService scheduler;
+
+    public LotCheckpoint(Path snapshotFile, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        this.snapshotFile = snapshotFile;
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+    }
+
+    /**
+     * @return false if the indexes are not loaded or the snapshot could not be written
+     */
+    public boolean write() {
+        ParkingSpotIndex parkingSpotIndex = parkingSpotDAO.getParkingSpotIndex();
+        RecurringVehicleIndex recurringVehicleIndex = ticketDAO.getRecurringVehicleIndex();
+        if (parkingSpotIndex == null || recurringVehicleIndex == null) {
+            logger.warn("Skipping checkpoint, the in-memory indexes are not loaded");
+            return false;
+        }
+        try {
+            // taken before the indexes are copied: an exit missing from the copy is timed after it
+            long start = System.currentTimeMillis();
+            LotSnapshot snapshot = new LotSnapshot(start, parkingSpotIndex.getParkingSpots(),
+                    recurringVehicleIndex.getVehicleRegNumbers());
+            snapshot.write(snapshotFile);
+            logger.info("Checkpoint of " + snapshot.getParkingSpots().size() + " parking spots and "
+                    + snapshot.getRecurringVehicles().size() + " recurring vehicles written in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error writing checkpoint " + snapshotFile, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Restores the DAO indexes from the snapshot, the parking table and the current open tickets: the spots are
+     * those of the table, so spots added since the snapshot are restored too, and a spot is taken exactly when
+     * an open ticket is on it. The vehicles that left since the snapshot are added to the recurring ones.
+     * @return false if there is no usable snapshot, the indexes then have to be loaded from the tables
+     */
+    public boolean restore() {
+        if (!Files.exists(snapshotFile)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        LotSnapshot snapshot;
+        try {
+            snapshot = LotSnapshot.read(snapshotFile);
+        } catch (Exception ex) {
+            logger.error("Error reading checkpoint " + snapshotFile, ex);
+            return false;
+        }
+        List<ParkingSpot> lotSpots = parkingSpotDAO.getParkingSpots();
+        List<Ticket> openTickets = ticketDAO.getOpenTickets();
+        List<String> exitedSince = ticketDAO.getVehiclesExitedSince(
+                new Date(snapshot.getCreatedAt() - CATCH_UP_MARGIN_MILLIS));
+        if (lotSpots == null || openTickets == null || exitedSince == null) {
+            return false;
+        }
+        if (lotSpots.size() != snapshot.getParkingSpots().size()) {
+            logger.info("The lot has " + lotSpots.size() + " parking spots, the checkpoint "
+                    + snapshot.getParkingSpots().size());
+        }
+
+        Set<Integer> takenSpots = new HashSet<>();
+        for (Ticket ticket : openTickets) {
+            takenSpots.add(ticket.getParkingSpot().getId());
+        }
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (ParkingSpot parkingSpot : lotSpots) {
+            parkingSpots.add(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(),
+                    !takenSpots.contains(parkingSpot.getId())));
+        }
+        Set<String> recurringVehicles = new HashSet<>(snapshot.getRecurringVehicles());
+        recurringVehicles.addAll(exitedSince);
+
+        parkingSpotDAO.restoreAvailabilityIndex(parkingSpots);
+        ticketDAO.restoreIndexes(openTickets, recurringVehicles);
+        logger.info("Restored checkpoint of " + new Date(snapshot.getCreatedAt()) + " with "
+                + exitedSince.size() + " exits to catch up in " + (System.currentTimeMillis() - start) + " ms");
+        return true;
+    }
+
+    public void start(long intervalMillis) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lot-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::write, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic checkpoints and writes a last one.
+     */
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        write();
+    }
+}
@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of the lot state held in memory that is costly to read back: the spots and the recurring vehicles.
+ * The open tickets are few and are read from the database at restore, spot availability is derived from them.
+ *
+ * File format, big endian: magic, version, created time, then the spots and the recurring registration numbers,
+ * each prefixed by its count, and a CRC32 of everything before it.
+ */
+public class LotSnapshot {
+
+    private static final int MAGIC = 0x504b534e; // "PKSN"
+    private static final int VERSION = 2;
+
+    private final long createdAt;
+    private final List<ParkingSpot> parkingSpots;
+    private final List<String> recurringVehicles;
+
+    public LotSnapshot(long createdAt, List<ParkingSpot> parkingSpots, List<String> recurringVehicles) {
+        this.createdAt = createdAt;
+        this.parkingSpots = Collections.unmodifiableList(parkingSpots);
+        this.recurringVehicles = Collections.unmodifiableList(recurringVehicles);
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<ParkingSpot> getParkingSpots() {
+        return parkingSpots;
+    }
+
+    public List<String> getRecurringVehicles() {
+        return recurringVehicles;
+    }
+
+    /**
+     * Writes next to the target and renames it, so a crash never leaves a half written snapshot.
+     */
+    public void write(Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream fileOut = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(createdAt);
+            out.writeInt(parkingSpots.size());
+            for (ParkingSpot parkingSpot : parkingSpots) {
+                out.writeInt(parkingSpot.getId());
+                out.writeByte(parkingSpot.getParkingType().ordinal());
+                out.writeBoolean(parkingSpot.isAvailable());
+            }
+            out.writeInt(recurringVehicles.size());
+            for (String vehicleRegNumber : recurringVehicles) {
+                out.writeUTF(vehicleRegNumber);
+            }
+            out.flush();
+            new DataOutputStream(fileOut).writeInt((int) crc.getValue());
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static LotSnapshot read(Path file) throws IOException {
+        // the checksum is verified before parsing so a corrupted count never sizes an allocation
+        byte[] content = Files.readAllBytes(file);
+        if (content.length < Integer.BYTES) {
+            throw new IOException("Lot snapshot " + file + " is truncated");
+        }
+        int length = content.length - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, length);
+        if (ByteBuffer.wrap(content, length, Integer.BYTES).getInt() != (int) crc.getValue()) {
+            throw new IOException("Lot snapshot " + file + " is corrupted");
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content, 0, length))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a lot snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported lot snapshot version " + version);
+            }
+            ParkingType[] parkingTypes = ParkingType.values();
+            long createdAt = in.readLong();
+            int spotCount = in.readInt();
+            List<ParkingSpot> parkingSpots = new ArrayList<>(spotCount);
+            for (int i = 0; i < spotCount; i++) {
+                parkingSpots.add(new ParkingSpot(in.readInt(), parkingTypes[in.readByte()], in.readBoolean()));
+            }
+            int vehicleCount = in.readInt();
+            List<String> recurringVehicles = new ArrayList<>(vehicleCount);
+            for (int i = 0; i < vehicleCount; i++) {
+                recurringVehicles.add(in.readUTF());
+            }
+            return new LotSnapshot(createdAt, parkingSpots, recurringVehicles);
+        }
+    }
+}
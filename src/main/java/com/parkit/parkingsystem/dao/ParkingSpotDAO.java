@@ -4,63 +4,242 @@ import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements ParkingSpotRepository {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
+    private static final int MAX_CLAIM_ATTEMPTS = 10;
 
     public DataBaseConfig dataBaseConfig;//;= new DataBaseConfig();
 
+    private volatile ParkingSpotIndex parkingSpotIndex;
+
     public ParkingSpotDAO(DataBaseConfig dataBaseConfig) {
         this.dataBaseConfig = dataBaseConfig;
     }
 
+    /**
+     * Loads the parking table into an in-memory availability index.
+     * Once loaded, spot lookups and claims no longer query the parking table.
+     */
+    public boolean loadAvailabilityIndex() {
+        List<ParkingSpot> parkingSpots = getParkingSpots();
+        if (parkingSpots == null) {
+            return false;
+        }
+        parkingSpotIndex = new ParkingSpotIndex(parkingSpots);
+        logger.info("Loaded availability index for " + parkingSpots.size() + " parking spots");
+        return true;
+    }
+
+    /**
+     * @return every spot of the parking table with its availability as stored, or null on error
+     */
+    public List<ParkingSpot> getParkingSpots() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+            rs = ps.executeQuery();
+            List<ParkingSpot> parkingSpots = new ArrayList<>();
+            while (rs.next()) {
+                parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)), rs.getBoolean(2)));
+            }
+            return parkingSpots;
+        }catch (Exception ex){
+            logger.error("Error fetching the parking spots",ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Installs an availability index rebuilt from a checkpoint instead of loading it from the parking table.
+     */
+    public void restoreAvailabilityIndex(Collection<ParkingSpot> parkingSpots) {
+        parkingSpotIndex = new ParkingSpotIndex(parkingSpots);
+    }
+
+    public ParkingSpotIndex getParkingSpotIndex() {
+        return parkingSpotIndex;
+    }
+
+    @Override
     public int getNextAvailableSlot(ParkingType parkingType){
+        ParkingSpotIndex index = parkingSpotIndex;
+        if (index != null) {
+            return index.peekNextAvailable(parkingType);
+        }
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            return selectNextAvailableSlot(con, parkingType);
+        }catch (Exception ex){
+            logger.error("Error fetching next available slot",ex);
+            Metrics.recordError("ParkingSpotDAO.getNextAvailableSlot");
+            return -1;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public int getAvailableSlotCount(ParkingType parkingType) {
+        ParkingSpotIndex index = parkingSpotIndex;
+        if (index != null) {
+            return index.countAvailable(parkingType);
+        }
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
-        int result=-1;
         try {
             con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.COUNT_AVAILABLE_PARKING_SPOTS);
+            ps.setString(1, parkingType.toString());
+            rs = ps.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        }catch (Exception ex){
+            logger.error("Error counting available slots",ex);
+            Metrics.recordError("ParkingSpotDAO.getAvailableSlotCount");
+            return -1;
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Claims the lowest free spot of the given type. The spot is only taken if the conditional update
+     * still finds it available in the parking table; if another gate got it first, the next candidate is tried.
+     * @return the claimed parking number, or -1 when no spot could be claimed
+     */
+    @Override
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            return claimNextAvailableSlot(con, parkingType);
+        }catch (Exception ex){
+            logger.error("Error claiming parking spot",ex);
+            Metrics.recordError("ParkingSpotDAO.claimNextAvailableSlot");
+            return -1;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Same as {@link #claimNextAvailableSlot(ParkingType)} on a connection owned by the caller,
+     * so the claim can take part in the caller's transaction. If the claim fails with an exception
+     * the spot is put back in the availability index.
+     */
+    public int claimNextAvailableSlot(Connection con, ParkingType parkingType) throws SQLException {
+        ParkingSpotIndex index = parkingSpotIndex;
+        for (int attempt = 1; index != null || attempt <= MAX_CLAIM_ATTEMPTS; attempt++) {
+            int parkingNumber = index != null ? index.claimNextAvailable(parkingType) : selectNextAvailableSlot(con, parkingType);
+            if (parkingNumber <= 0) {
+                return -1;
+            }
+            int updateRowCount;
+            try {
+                updateRowCount = claimParkingSpot(con, parkingNumber);
+            } catch (SQLException ex) {
+                releaseInIndex(parkingNumber);
+                throw ex;
+            }
+            if (updateRowCount == 1) {
+                return parkingNumber;
+            }
+            // already taken in the parking table (by another gate or process): the index keeps it unavailable
+            logger.debug("Parking spot " + parkingNumber + " was claimed concurrently, trying next one");
+        }
+        logger.warn("Gave up claiming a " + parkingType + " parking spot after " + MAX_CLAIM_ATTEMPTS + " attempts");
+        return -1;
+    }
+
+    /**
+     * Puts a claimed spot back in the availability index, used when the transaction that claimed it rolls back.
+     */
+    public void releaseInIndex(int parkingNumber) {
+        ParkingSpotIndex index = parkingSpotIndex;
+        if (index != null) {
+            index.setAvailable(parkingNumber, true);
+        }
+    }
+
+    private int selectNextAvailableSlot(Connection con, ParkingType parkingType) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
             ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
             ps.setString(1, parkingType.toString());
             rs = ps.executeQuery();
             if(rs.next()){
-                result = rs.getInt(1);
+                return rs.getInt(1);
             }
-        }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            return -1;
         }finally {
-            dataBaseConfig.closeConnection(con);
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
         }
-        return result;
     }
 
+    private int claimParkingSpot(Connection con, int parkingNumber) throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+            ps.setInt(1, parkingNumber);
+            return ps.executeUpdate();
+        }finally {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    @Override
     public boolean updateParking(ParkingSpot parkingSpot){
+        boolean updated = writeAvailability(parkingSpot.getId(), parkingSpot.isAvailable());
+        ParkingSpotIndex index = parkingSpotIndex;
+        if (updated && index != null) {
+            index.setAvailable(parkingSpot.getId(), parkingSpot.isAvailable());
+        }
+        return updated;
+    }
+
+    private boolean writeAvailability(int parkingNumber, boolean available){
         //update the availability fo that parking slot
         Connection con = null;
         PreparedStatement ps = null;
         try {
             con = dataBaseConfig.getConnection();
             ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
+            ps.setBoolean(1, available);
+            ps.setInt(2, parkingNumber);
             int updateRowCount = ps.executeUpdate();
             dataBaseConfig.closePreparedStatement(ps);
             return (updateRowCount == 1);
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
+            Metrics.recordError("ParkingSpotDAO.updateParking");
             return false;
         }finally {
-            dataBaseConfig.closeConnection(con);
             dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
         }
     }
 
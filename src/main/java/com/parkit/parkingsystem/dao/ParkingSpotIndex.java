@@ -0,0 +1,130 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory availability of the parking spots, one bitset per parking type.
+ * A set bit means the spot with that number is free. Spots are claimed with compare-and-set
+ * on the 64 bit word holding them, so concurrent gates never get the same spot.
+ */
+public class ParkingSpotIndex {
+
+    private final Map<ParkingType, AtomicLongArray> freeSpots = new EnumMap<>(ParkingType.class);
+    private final ParkingType[] spotTypes;
+
+    public ParkingSpotIndex(Collection<ParkingSpot> parkingSpots) {
+        int maxNumber = 0;
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            maxNumber = Math.max(maxNumber, parkingSpot.getId());
+        }
+        spotTypes = new ParkingType[maxNumber + 1];
+        for (ParkingType parkingType : ParkingType.values()) {
+            freeSpots.put(parkingType, new AtomicLongArray((maxNumber >> 6) + 1));
+        }
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            if (parkingSpot.getId() <= 0) {
+                throw new IllegalArgumentException("Invalid parking number " + parkingSpot.getId());
+            }
+            spotTypes[parkingSpot.getId()] = parkingSpot.getParkingType();
+            setAvailable(parkingSpot.getId(), parkingSpot.isAvailable());
+        }
+    }
+
+    public int peekNextAvailable(ParkingType parkingType) {
+        AtomicLongArray words = freeSpots.get(parkingType);
+        for (int i = 0; i < words.length(); i++) {
+            long word = words.get(i);
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    public int claimNextAvailable(ParkingType parkingType) {
+        AtomicLongArray words = freeSpots.get(parkingType);
+        for (int i = 0; i < words.length(); i++) {
+            long word = words.get(i);
+            while (word != 0) {
+                long lowestBit = Long.lowestOneBit(word);
+                if (words.compareAndSet(i, word, word & ~lowestBit)) {
+                    return (i << 6) + Long.numberOfTrailingZeros(lowestBit);
+                }
+                word = words.get(i);
+            }
+        }
+        return -1;
+    }
+
+    public boolean claim(int parkingNumber) {
+        if (!isKnown(parkingNumber)) {
+            return false;
+        }
+        AtomicLongArray words = freeSpots.get(spotTypes[parkingNumber]);
+        int i = parkingNumber >> 6;
+        long bit = 1L << parkingNumber;
+        long word;
+        do {
+            word = words.get(i);
+            if ((word & bit) == 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(i, word, word & ~bit));
+        return true;
+    }
+
+    public void setAvailable(int parkingNumber, boolean available) {
+        if (!isKnown(parkingNumber)) {
+            return;
+        }
+        AtomicLongArray words = freeSpots.get(spotTypes[parkingNumber]);
+        int i = parkingNumber >> 6;
+        long bit = 1L << parkingNumber;
+        long word;
+        long updated;
+        do {
+            word = words.get(i);
+            updated = available ? word | bit : word & ~bit;
+        } while (word != updated && !words.compareAndSet(i, word, updated));
+    }
+
+    public boolean isAvailable(int parkingNumber) {
+        return isKnown(parkingNumber)
+                && (freeSpots.get(spotTypes[parkingNumber]).get(parkingNumber >> 6) & (1L << parkingNumber)) != 0;
+    }
+
+    public int countAvailable(ParkingType parkingType) {
+        AtomicLongArray words = freeSpots.get(parkingType);
+        int count = 0;
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+
+    public List<ParkingSpot> getParkingSpots() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int parkingNumber = 1; parkingNumber < spotTypes.length; parkingNumber++) {
+            if (spotTypes[parkingNumber] != null) {
+                parkingSpots.add(new ParkingSpot(parkingNumber, spotTypes[parkingNumber], isAvailable(parkingNumber)));
+            }
+        }
+        return parkingSpots;
+    }
+
+    public ParkingType getParkingType(int parkingNumber) {
+        return isKnown(parkingNumber) ? spotTypes[parkingNumber] : null;
+    }
+
+    private boolean isKnown(int parkingNumber) {
+        return parkingNumber > 0 && parkingNumber < spotTypes.length && spotTypes[parkingNumber] != null;
+    }
+}
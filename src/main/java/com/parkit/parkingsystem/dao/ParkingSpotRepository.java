@@ -0,0 +1,29 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Storage of the parking spots, independent of the backend.
+ * Implemented over JDBC by {@link ParkingSpotDAO} and in process by the embedded engine.
+ */
+public interface ParkingSpotRepository {
+
+    /**
+     * @return the lowest free spot of the type without taking it, or -1 when none is free
+     */
+    int getNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Takes the lowest free spot of the type so no other gate can get it.
+     * @return the claimed parking number, or -1 when no spot could be claimed
+     */
+    int claimNextAvailableSlot(ParkingType parkingType);
+
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * @return the number of free spots of the type, or -1 if it could not be counted
+     */
+    int getAvailableSlotCount(ParkingType parkingType);
+}
@@ -0,0 +1,149 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.Metrics;
+import com.parkit.parkingsystem.util.OperationStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Gate operations that touch both the parking and the ticket tables.
+ * Each operation runs on a single connection inside a single transaction.
+ */
+public class ParkingTransactionDAO {
+
+    private static final Logger logger = LogManager.getLogger("ParkingTransactionDAO");
+    private static final OperationStats enterVehicleStats = Metrics.get("ParkingTransactionDAO.enterVehicle");
+    private static final OperationStats closeTicketStats = Metrics.get("ParkingTransactionDAO.closeTicket");
+
+    public DataBaseConfig dataBaseConfig;
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+
+    public ParkingTransactionDAO(DataBaseConfig dataBaseConfig, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+    }
+
+    /**
+     * Checks the vehicle is not already parked, claims a spot and saves the ticket, committed once.
+     * If anything fails nothing is written: no spot stays taken without a ticket.
+     * The database allows one open ticket per vehicle, so a gate losing the race on the same vehicle
+     * gets ALREADY_INSIDE too.
+     */
+    public EntryResult enterVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        long start = System.nanoTime();
+        Connection con = null;
+        int previousIsolation = Connection.TRANSACTION_NONE;
+        int parkingNumber = -1;
+        boolean recurringVehicle = false;
+        try {
+            con = dataBaseConfig.getConnection();
+            previousIsolation = con.getTransactionIsolation();
+            // retries after a lost claim must see spots committed by other gates
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            con.setAutoCommit(false);
+
+            if (ticketDAO.inside(con, vehicleRegNumber)) {
+                con.rollback();
+                return new EntryResult(EntryResult.Status.ALREADY_INSIDE, null, false);
+            }
+            recurringVehicle = ticketDAO.isRecurringVehicle(con, vehicleRegNumber);
+            parkingNumber = parkingSpotDAO.claimNextAvailableSlot(con, parkingType);
+            if (parkingNumber <= 0) {
+                con.rollback();
+                return new EntryResult(EntryResult.Status.PARKING_FULL, null, recurringVehicle);
+            }
+
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(0);
+            ticket.setInTime(inTime);
+            ticket.setOutTime(null);
+            ticket.setId(ticketDAO.insertTicket(con, ticket));
+            con.commit();
+            ticketDAO.registerEntry(ticket);
+            return new EntryResult(EntryResult.Status.PARKED, ticket, recurringVehicle);
+        } catch (Exception ex) {
+            rollback(con);
+            if (parkingNumber > 0) {
+                parkingSpotDAO.releaseInIndex(parkingNumber);
+            }
+            if (TicketDAO.isDuplicateOpenTicket(ex)) {
+                return new EntryResult(EntryResult.Status.ALREADY_INSIDE, null, recurringVehicle);
+            }
+            logger.error("Error registering vehicle entry", ex);
+            enterVehicleStats.recordError();
+            return new EntryResult(EntryResult.Status.ERROR, null, false);
+        } finally {
+            restoreIsolation(con, previousIsolation);
+            dataBaseConfig.closeConnection(con);
+            enterVehicleStats.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Closes the ticket and frees its spot with a single multi-table update, one round trip and atomic.
+     * @return false if the ticket was not found or was already closed
+     */
+    public boolean closeTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.CLOSE_TICKET_AND_FREE_SPOT);
+            ps.setDouble(1, ticket.getPrice());
+            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+            ps.setInt(3, ticket.getId());
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+            parkingSpotDAO.releaseInIndex(ticket.getParkingSpot().getId());
+            ticketDAO.registerExit(ticket);
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error closing ticket", ex);
+            closeTicketStats.recordError();
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+            closeTicketStats.record(System.nanoTime() - start);
+        }
+    }
+
+    private void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back transaction", e);
+            }
+        }
+    }
+
+    private void restoreIsolation(Connection con, int previousIsolation) {
+        if (con != null && previousIsolation != Connection.TRANSACTION_NONE) {
+            try {
+                con.setAutoCommit(true);
+                con.setTransactionIsolation(previousIsolation);
+            } catch (SQLException e) {
+                logger.error("Error while restoring transaction isolation", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.util.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registration numbers of the vehicles with at least one completed visit.
+ * A Bloom filter in front rejects most first-time vehicles without touching the exact set.
+ */
+public class RecurringVehicleIndex {
+
+    private static final long MIN_EXPECTED_VEHICLES = 100_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final BloomFilter bloomFilter;
+    private final Set<String> recurringVehicles = ConcurrentHashMap.newKeySet();
+
+    public RecurringVehicleIndex(Collection<String> vehicleRegNumbers) {
+        bloomFilter = new BloomFilter(Math.max(MIN_EXPECTED_VEHICLES, 2L * vehicleRegNumbers.size()), FALSE_POSITIVE_RATE);
+        for (String vehicleRegNumber : vehicleRegNumbers) {
+            add(vehicleRegNumber);
+        }
+    }
+
+    public void add(String vehicleRegNumber) {
+        recurringVehicles.add(vehicleRegNumber);
+        bloomFilter.put(vehicleRegNumber);
+    }
+
+    public boolean isRecurring(String vehicleRegNumber) {
+        return bloomFilter.mightContain(vehicleRegNumber) && recurringVehicles.contains(vehicleRegNumber);
+    }
+
+    public List<String> getVehicleRegNumbers() {
+        return new ArrayList<>(recurringVehicles);
+    }
+
+    public int size() {
+        return recurringVehicles.size();
+    }
+}
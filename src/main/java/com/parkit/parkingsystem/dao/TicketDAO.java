@@ -3,49 +3,438 @@ package com.parkit.parkingsystem.dao;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OpenTicket;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-public class TicketDAO {
+public class TicketDAO implements TicketRepository {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
     public DataBaseConfig dataBaseConfig;
 
+    private volatile ActiveSessionIndex activeSessionIndex;
+    private volatile RecurringVehicleIndex recurringVehicleIndex;
+    private volatile TicketWriteQueue ticketWriteQueue;
+
     public TicketDAO(DataBaseConfig dataBaseConfig) {
         this.dataBaseConfig = dataBaseConfig;
     }
 
+    /**
+     * Loads the open tickets into an in-memory index so inside checks no longer query the ticket table.
+     * The index is kept up to date by the entry and exit methods of this DAO.
+     */
+    public boolean loadActiveSessions() {
+        List<Ticket> openTickets = getOpenTickets();
+        if (openTickets == null) {
+            return false;
+        }
+        activeSessionIndex = new ActiveSessionIndex(openTickets);
+        logger.info("Loaded " + openTickets.size() + " open tickets into the active session index");
+        return true;
+    }
+
+    /**
+     * @return the tickets without out time, or null if they could not be read
+     */
+    public List<Ticket> getOpenTickets() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS);
+            rs = ps.executeQuery();
+            List<Ticket> openTickets = new ArrayList<>();
+            while (rs.next()) {
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(5)), false));
+                ticket.setId(rs.getInt(2));
+                ticket.setPrice(rs.getDouble(3));
+                ticket.setInTime(rs.getTimestamp(4));
+                ticket.setVehicleRegNumber(rs.getString(6));
+                ticket.setOutTime(null);
+                openTickets.add(ticket);
+            }
+            return openTickets;
+        } catch (Exception ex) {
+            logger.error("Error loading open tickets", ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * @return the registration numbers of the vehicles that left at or after the given time, or null if they could not be read
+     */
+    public List<String> getVehiclesExitedSince(Date since) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_VEHICLES_EXITED_SINCE);
+            ps.setTimestamp(1, new Timestamp(since.getTime()));
+            rs = ps.executeQuery();
+            List<String> vehicleRegNumbers = new ArrayList<>();
+            while (rs.next()) {
+                vehicleRegNumbers.add(rs.getString(1));
+            }
+            return vehicleRegNumbers;
+        } catch (Exception ex) {
+            logger.error("Error loading recent exits", ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Reads closed tickets in id order, the keyset of the next page being the id of the last ticket read.
+     * @return at most limit tickets with an id in (afterId, lastId], or null if they could not be read
+     */
+    public List<Ticket> getClosedTicketPage(int afterId, int lastId, int limit) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKET_PAGE);
+            ps.setInt(1, afterId);
+            ps.setInt(2, lastId);
+            ps.setInt(3, limit);
+            rs = ps.executeQuery();
+            List<Ticket> tickets = new ArrayList<>(limit);
+            while (rs.next()) {
+                Ticket ticket = new Ticket();
+                ticket.setId(rs.getInt(1));
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(2), ParkingType.valueOf(rs.getString(3)), false));
+                ticket.setVehicleRegNumber(rs.getString(4));
+                ticket.setPrice(rs.getDouble(5));
+                ticket.setInTime(rs.getTimestamp(6));
+                ticket.setOutTime(rs.getTimestamp(7));
+                tickets.add(ticket);
+            }
+            return tickets;
+        } catch (Exception ex) {
+            logger.error("Error loading closed tickets " + afterId + " to " + lastId, ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * The loyalty status of past tickets in one query: a ticket was priced as recurring
+     * when its vehicle had already left once before its own exit.
+     * @return the first exit time of every vehicle with a ticket id in (afterId, lastId], or null if it could not be read
+     */
+    public Map<String, Date> getFirstExitTimes(int afterId, int lastId) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_FIRST_EXITS_OF_TICKET_RANGE);
+            ps.setInt(1, afterId);
+            ps.setInt(2, lastId);
+            rs = ps.executeQuery();
+            Map<String, Date> firstExitTimes = new HashMap<>();
+            while (rs.next()) {
+                firstExitTimes.put(rs.getString(1), rs.getTimestamp(2));
+            }
+            return firstExitTimes;
+        } catch (Exception ex) {
+            logger.error("Error loading first exit times of tickets " + afterId + " to " + lastId, ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Writes the prices of the tickets as one JDBC batch in a single transaction.
+     * @return false if nothing was written
+     */
+    public boolean updatePrices(List<Ticket> tickets) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            ps = con.prepareStatement(DBConstants.UPDATE_TICKET_PRICE);
+            for (Ticket ticket : tickets) {
+                ps.setDouble(1, ticket.getPrice());
+                ps.setInt(2, ticket.getId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            con.commit();
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error updating the price of " + tickets.size() + " tickets", ex);
+            return false;
+        } finally {
+            // the pool rolls back and restores auto-commit when the connection is returned
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * @return the highest ticket id, 0 for an empty table, or -1 if it could not be read
+     */
+    public int getLastTicketId() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_LAST_TICKET_ID);
+            rs = ps.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (Exception ex) {
+            logger.error("Error fetching last ticket id", ex);
+            return -1;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Installs indexes rebuilt from a checkpoint instead of loading them from the ticket table.
+     */
+    public void restoreIndexes(Collection<Ticket> openTickets, Collection<String> recurringVehicles) {
+        activeSessionIndex = new ActiveSessionIndex(openTickets);
+        recurringVehicleIndex = new RecurringVehicleIndex(recurringVehicles);
+    }
+
+    public ActiveSessionIndex getActiveSessionIndex() {
+        return activeSessionIndex;
+    }
+
+    /**
+     * Loads the vehicles with a completed visit so recurring checks no longer count tickets in the table.
+     */
+    public boolean loadRecurringVehicles() {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.GET_RECURRING_VEHICLES);
+            rs = ps.executeQuery();
+            List<String> vehicleRegNumbers = new ArrayList<>();
+            while (rs.next()) {
+                vehicleRegNumbers.add(rs.getString(1));
+            }
+            recurringVehicleIndex = new RecurringVehicleIndex(vehicleRegNumbers);
+            logger.info("Loaded " + vehicleRegNumbers.size() + " recurring vehicles");
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error loading recurring vehicles", ex);
+            return false;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public RecurringVehicleIndex getRecurringVehicleIndex() {
+        return recurringVehicleIndex;
+    }
+
+    /**
+     * Records a committed entry in the in-memory indexes.
+     */
+    public void registerEntry(Ticket ticket) {
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null && ticket.getOutTime() == null) {
+            index.put(ticket);
+        }
+    }
+
+    /**
+     * Records a committed exit in the in-memory indexes.
+     */
+    public void registerExit(Ticket ticket) {
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null) {
+            index.remove(ticket.getVehicleRegNumber());
+        }
+        RecurringVehicleIndex recurringIndex = recurringVehicleIndex;
+        if (recurringIndex != null) {
+            recurringIndex.add(ticket.getVehicleRegNumber());
+        }
+    }
+
+    /**
+     * Routes saveTicketAsync and updateTicketAsync through a write-behind queue; null writes synchronously.
+     */
+    public void setTicketWriteQueue(TicketWriteQueue ticketWriteQueue) {
+        this.ticketWriteQueue = ticketWriteQueue;
+    }
+
+    @Override
+    public boolean isWriteBehindEnabled() {
+        return ticketWriteQueue != null;
+    }
+
+    /**
+     * Records the id generated for a ticket written behind.
+     */
+    void registerTicketId(Ticket ticket) {
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null && ticket.getOutTime() == null) {
+            index.assignId(ticket.getVehicleRegNumber(), ticket.getId());
+        }
+    }
+
+    /**
+     * Forgets an entry whose write-behind insert was rolled back.
+     */
+    void discardEntry(Ticket ticket) {
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null) {
+            index.remove(ticket.getVehicleRegNumber());
+        }
+    }
+
+    /**
+     * The vehicle counts as inside as soon as the write is queued; the future completes after the commit.
+     * Claiming the vehicle in the index is atomic: of two gates queuing the same vehicle, the second gets false.
+     */
+    @Override
+    public CompletableFuture<Boolean> saveTicketAsync(Ticket ticket) throws Exception {
+        TicketWriteQueue writeQueue = ticketWriteQueue;
+        if (writeQueue == null) {
+            return CompletableFuture.completedFuture(saveTicket(ticket));
+        }
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null && !index.putIfAbsent(ticket)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return writeQueue.submitInsert(ticket);
+    }
+
+    /**
+     * The vehicle leaves the indexes only once its exit is committed, so a rolled back exit can be retried.
+     */
+    @Override
+    public CompletableFuture<Boolean> updateTicketAsync(Ticket ticket) {
+        TicketWriteQueue writeQueue = ticketWriteQueue;
+        if (writeQueue == null) {
+            return CompletableFuture.completedFuture(updateTicket(ticket));
+        }
+        return writeQueue.submitUpdate(ticket);
+    }
+
+    /**
+     * @return false if the ticket was not saved, in particular when the vehicle already has an open ticket
+     */
+    @Override
     public boolean saveTicket(Ticket ticket) throws Exception {
         Connection con = null;
         PreparedStatement ps = null;
         try {
             con = dataBaseConfig.getConnection();
             ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            bindTicket(ps, ticket);
+            ps.executeUpdate();
+            registerEntry(ticket);
+            return true;
         }catch (Exception ex){
-           logger.error("Error fetching next available slot",ex);
+           if (isDuplicateOpenTicket(ex)) {
+               logger.info("Vehicle " + ticket.getVehicleRegNumber() + " already has an open ticket");
+               return false;
+           }
+           logger.error("Error saving ticket",ex);
+           Metrics.recordError("TicketDAO.saveTicket");
         }finally {
-            dataBaseConfig.closeConnection(con);
             dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
         }
         return false;
     }
 
+    /**
+     * @return true if the insert was rejected because the vehicle already has an open ticket
+     */
+    static boolean isDuplicateOpenTicket(Exception ex) {
+        return ex instanceof SQLException && ((SQLException) ex).getErrorCode() == DBConstants.DUPLICATE_ENTRY_ERROR;
+    }
+
+    /**
+     * Inserts the ticket on a connection owned by the caller, so it can be part of a larger transaction.
+     * @return the generated ticket id
+     */
+    public int insertTicket(Connection con, Ticket ticket) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+            bindTicket(ps, ticket);
+            ps.executeUpdate();
+            rs = ps.getGeneratedKeys();
+            if (!rs.next()) {
+                throw new SQLException("No id generated for ticket of vehicle " + ticket.getVehicleRegNumber());
+            }
+            return rs.getInt(1);
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    void bindTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        ps.setInt(1,ticket.getParkingSpot().getId());
+        ps.setString(2, ticket.getVehicleRegNumber());
+        ps.setDouble(3, ticket.getPrice());
+        ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+        ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+    }
+
+    @Override
     public Ticket getTicket(String vehicleRegNumber) {
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null) {
+            Ticket openTicket = index.get(vehicleRegNumber);
+            // tickets saved without their generated id are read back once from the table,
+            // unless their insert may still be queued
+            if (openTicket != null && (openTicket.getId() > 0 || ticketWriteQueue != null)) {
+                return openTicket;
+            }
+        }
         Connection con = null;
         Ticket ticket = null;
         PreparedStatement ps = null;
@@ -64,65 +453,156 @@ public class TicketDAO {
                 ticket.setPrice(rs.getDouble(3));
                 ticket.setInTime(rs.getTimestamp(4));
                 ticket.setOutTime(rs.getTimestamp(5));
+                if (index != null && ticket.getOutTime() == null) {
+                    index.put(ticket);
+                }
             }
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            logger.error("Error fetching ticket",ex);
+            Metrics.recordError("TicketDAO.getTicket");
         }finally {
-            dataBaseConfig.closeConnection(con);
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
         }
         return ticket;
     }
 
-
-
-    public boolean isRecurringVehicle (String vehicleRegNumber) {
-        int  recurringVehicle = 0;
+    /**
+     * Fetches in one query what an exit needs: the open ticket of the vehicle, the type of its spot
+     * and how many visits the vehicle already completed.
+     * @return the open ticket, or null when the vehicle is not inside
+     */
+    @Override
+    public OpenTicket getOpenTicket(String vehicleRegNumber) {
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null) {
+            Ticket openTicket = index.get(vehicleRegNumber);
+            if (openTicket == null) {
+                return null;
+            }
+            RecurringVehicleIndex recurringIndex = recurringVehicleIndex;
+            // like getTicket: a ticket whose insert may still be queued is closed by registration number
+            if ((openTicket.getId() > 0 || ticketWriteQueue != null) && recurringIndex != null) {
+                return new OpenTicket(openTicket, recurringIndex.isRecurring(vehicleRegNumber));
+            }
+        }
         Connection con = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
         try {
             con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.RECURRING_VEHICLE);
+            ps = con.prepareStatement(DBConstants.GET_OPEN_TICKET);
             ps.setString(1, vehicleRegNumber);
             rs = ps.executeQuery();
             if (rs.next()) {
-               recurringVehicle = rs.getInt(1);
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(5)), false));
+                ticket.setId(rs.getInt(2));
+                ticket.setVehicleRegNumber(vehicleRegNumber);
+                ticket.setPrice(rs.getDouble(3));
+                ticket.setInTime(rs.getTimestamp(4));
+                ticket.setOutTime(null);
+                return new OpenTicket(ticket, rs.getInt(6));
             }
         } catch (Exception ex) {
-            logger.error("Error fetching next available slot", ex);
+            logger.error("Error fetching open ticket", ex);
+            Metrics.recordError("TicketDAO.getOpenTicket");
         } finally {
-            dataBaseConfig.closeConnection(con);
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        return null;
+    }
+
+    /**
+     * Never queries the ticket table once both indexes are loaded, a ticket still waiting for its generated id
+     * is quoted all the same.
+     */
+    @Override
+    public OpenTicket peekOpenTicket(String vehicleRegNumber) {
+        ActiveSessionIndex index = activeSessionIndex;
+        RecurringVehicleIndex recurringIndex = recurringVehicleIndex;
+        if (index == null || recurringIndex == null) {
+            return getOpenTicket(vehicleRegNumber);
+        }
+        Ticket openTicket = index.get(vehicleRegNumber);
+        return openTicket == null ? null : new OpenTicket(openTicket, recurringIndex.isRecurring(vehicleRegNumber));
+    }
+
+    @Override
+    public boolean isRecurringVehicle (String vehicleRegNumber) {
+        RecurringVehicleIndex recurringIndex = recurringVehicleIndex;
+        if (recurringIndex != null) {
+            return recurringIndex.isRecurring(vehicleRegNumber);
+        }
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            return isRecurringVehicle(con, vehicleRegNumber);
+        } catch (Exception ex) {
+            logger.error("Error checking recurring vehicle", ex);
+            Metrics.recordError("TicketDAO.isRecurringVehicle");
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
         }
-        return recurringVehicle >= 1 ? true : false;
     }
 
+    public boolean isRecurringVehicle(Connection con, String vehicleRegNumber) throws SQLException {
+        RecurringVehicleIndex recurringIndex = recurringVehicleIndex;
+        if (recurringIndex != null) {
+            return recurringIndex.isRecurring(vehicleRegNumber);
+        }
+        return countTickets(con, DBConstants.RECURRING_VEHICLE, vehicleRegNumber) >= 1;
+    }
+
+    @Override
     public boolean inside (String vehicleRegNumber) {
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null) {
+            return index.contains(vehicleRegNumber);
+        }
         Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            return inside(con, vehicleRegNumber);
+        } catch (Exception ex) {
+            logger.error("Error checking vehicle inside", ex);
+            Metrics.recordError("TicketDAO.inside");
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public boolean inside(Connection con, String vehicleRegNumber) throws SQLException {
+        ActiveSessionIndex index = activeSessionIndex;
+        if (index != null) {
+            return index.contains(vehicleRegNumber);
+        }
+        return countTickets(con, DBConstants.INSIDE, vehicleRegNumber) >= 1;
+    }
+
+    private int countTickets(Connection con, String query, String vehicleRegNumber) throws SQLException {
         PreparedStatement ps = null;
         ResultSet rs = null;
-        int insidePark = 0;
         try {
-            con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.INSIDE);
+            ps = con.prepareStatement(query);
             ps.setString(1, vehicleRegNumber);
             rs = ps.executeQuery();
-            if (rs.next()) {
-                insidePark = rs.getInt(1);
-            }
-        } catch (Exception ex) {
-            logger.error("Error fetching next available slot", ex);
+            return rs.next() ? rs.getInt(1) : 0;
         } finally {
-            dataBaseConfig.closeConnection(con);
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
         }
-        return insidePark >= 1 ? true : false;
     }
 
+    /**
+     * @return true when the ticket was found and updated, only then does the vehicle leave the indexes
+     */
+    @Override
     public boolean updateTicket(Ticket ticket) {
         Connection con = null;
         PreparedStatement ps = null;
@@ -132,13 +612,17 @@ public class TicketDAO {
             ps.setDouble(1, ticket.getPrice());
             ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
             ps.setInt(3,ticket.getId());
-            ps.execute();
+            if (ps.executeUpdate() != 1) {
+                return false;
+            }
+            registerExit(ticket);
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
+            Metrics.recordError("TicketDAO.updateTicket");
         }finally {
-            dataBaseConfig.closeConnection(con);
             dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
         }
         return false;
     }
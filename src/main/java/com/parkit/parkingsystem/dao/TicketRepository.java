@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage of the tickets, independent of the backend.
+ * Implemented over JDBC by {@link TicketDAO} and in process by the embedded engine.
+ */
+public interface TicketRepository {
+
+    boolean saveTicket(Ticket ticket) throws Exception;
+
+    /**
+     * @return the latest ticket of the vehicle, open or not, or null if it never parked
+     */
+    Ticket getTicket(String vehicleRegNumber);
+
+    /**
+     * @return the open ticket of the vehicle with its loyalty status, or null when it is not inside
+     */
+    OpenTicket getOpenTicket(String vehicleRegNumber);
+
+    /**
+     * Same as {@link #getOpenTicket} for read-only uses such as fare quotes: answered from memory when the
+     * backend keeps the open tickets there, in which case the ticket id may not be known yet.
+     */
+    default OpenTicket peekOpenTicket(String vehicleRegNumber) {
+        return getOpenTicket(vehicleRegNumber);
+    }
+
+    boolean updateTicket(Ticket ticket);
+
+    boolean isRecurringVehicle(String vehicleRegNumber);
+
+    boolean inside(String vehicleRegNumber);
+
+    default boolean isWriteBehindEnabled() {
+        return false;
+    }
+
+    default CompletableFuture<Boolean> saveTicketAsync(Ticket ticket) throws Exception {
+        return CompletableFuture.completedFuture(saveTicket(ticket));
+    }
+
+    default CompletableFuture<Boolean> updateTicketAsync(Ticket ticket) {
+        return CompletableFuture.completedFuture(updateTicket(ticket));
+    }
+}
@@ -0,0 +1,284 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind pipeline for ticket inserts and updates.
+ * Writes go onto a bounded queue and a single writer thread flushes them as JDBC batches,
+ * one transaction per flush, every flushIntervalMillis or maxBatchSize writes, whichever comes first.
+ * The future of each write completes with true once its flush is committed, false if it was rolled back.
+ * A flush that fails is retried one write at a time, so a bad write does not fail the others of its batch.
+ * Writes are applied in submission order.
+ */
+public class TicketWriteQueue {
+
+    private static final Logger logger = LogManager.getLogger("TicketWriteQueue");
+
+    private enum Kind { INSERT, UPDATE }
+
+    private static final class PendingWrite {
+        private final Kind kind;
+        private final Ticket ticket;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private PendingWrite(Kind kind, Ticket ticket) {
+            this.kind = kind;
+            this.ticket = ticket;
+        }
+    }
+
+    private final DataBaseConfig dataBaseConfig;
+    private final TicketDAO ticketDAO;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writerThread;
+    private volatile boolean running;
+
+    public TicketWriteQueue(DataBaseConfig dataBaseConfig, TicketDAO ticketDAO, int capacity, int maxBatchSize,
+                            long flushIntervalMillis) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.ticketDAO = ticketDAO;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::writeLoop, "ticket-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        writerThread.start();
+    }
+
+    public CompletableFuture<Boolean> submitInsert(Ticket ticket) {
+        return submit(new PendingWrite(Kind.INSERT, ticket));
+    }
+
+    public CompletableFuture<Boolean> submitUpdate(Ticket ticket) {
+        return submit(new PendingWrite(Kind.UPDATE, ticket));
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting writes and waits for the queued ones to be flushed.
+     */
+    public void close() {
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingWrite leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.future.complete(false);
+        }
+    }
+
+    private CompletableFuture<Boolean> submit(PendingWrite write) {
+        if (!running) {
+            write.future.complete(false);
+            return write.future;
+        }
+        try {
+            // a full queue blocks the gate: back pressure instead of unbounded memory
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.future.complete(false);
+            return write.future;
+        }
+        // closed meanwhile: the writer and close() may both be gone, whoever removes the write completes it
+        if (!running && queue.remove(write)) {
+            write.future.complete(false);
+        }
+        return write.future;
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        if (write(batch)) {
+            for (PendingWrite write : batch) {
+                committed(write);
+            }
+            return;
+        }
+        if (batch.size() > 1) {
+            logger.warn("Retrying the " + batch.size() + " ticket writes of a failed flush one by one");
+        }
+        for (PendingWrite write : batch) {
+            if (batch.size() > 1 && write(Collections.singletonList(write))) {
+                committed(write);
+            } else {
+                rolledBack(write);
+            }
+        }
+    }
+
+    /**
+     * Writes in one transaction.
+     * @return false if the transaction was rolled back
+     */
+    private boolean write(List<PendingWrite> writes) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            int start = 0;
+            while (start < writes.size()) {
+                Kind kind = writes.get(start).kind;
+                int end = start;
+                while (end < writes.size() && writes.get(end).kind == kind) {
+                    end++;
+                }
+                if (kind == Kind.INSERT) {
+                    writeInserts(con, writes.subList(start, end));
+                } else {
+                    writeUpdates(con, writes.subList(start, end));
+                }
+                start = end;
+            }
+            con.commit();
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error flushing " + writes.size() + " ticket writes", ex);
+            rollback(con);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void committed(PendingWrite write) {
+        if (write.kind == Kind.INSERT) {
+            ticketDAO.registerTicketId(write.ticket);
+        } else {
+            ticketDAO.registerExit(write.ticket);
+        }
+        write.future.complete(true);
+    }
+
+    private void rolledBack(PendingWrite write) {
+        if (write.kind == Kind.INSERT) {
+            ticketDAO.discardEntry(write.ticket);
+        }
+        write.future.complete(false);
+    }
+
+    private void writeInserts(Connection con, List<PendingWrite> inserts) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+            for (PendingWrite insert : inserts) {
+                ticketDAO.bindTicket(ps, insert.ticket);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            rs = ps.getGeneratedKeys();
+            for (PendingWrite insert : inserts) {
+                if (!rs.next()) {
+                    throw new SQLException("No id generated for ticket of vehicle " + insert.ticket.getVehicleRegNumber());
+                }
+                insert.ticket.setId(rs.getInt(1));
+            }
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    // a ticket whose insert was still queued at exit has no id yet: it is closed by registration number
+    private void writeUpdates(Connection con, List<PendingWrite> updates) throws SQLException {
+        PreparedStatement byId = null;
+        PreparedStatement byVehicle = null;
+        try {
+            for (PendingWrite update : updates) {
+                Ticket ticket = update.ticket;
+                PreparedStatement ps;
+                if (ticket.getId() > 0) {
+                    ps = byId == null ? byId = con.prepareStatement(DBConstants.UPDATE_TICKET) : byId;
+                    ps.setInt(3, ticket.getId());
+                } else {
+                    ps = byVehicle == null ? byVehicle = con.prepareStatement(DBConstants.CLOSE_OPEN_TICKET) : byVehicle;
+                    ps.setString(3, ticket.getVehicleRegNumber());
+                }
+                ps.setDouble(1, ticket.getPrice());
+                ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+                ps.addBatch();
+            }
+            if (byId != null) {
+                byId.executeBatch();
+            }
+            if (byVehicle != null) {
+                byVehicle.executeBatch();
+            }
+        } finally {
+            dataBaseConfig.closePreparedStatement(byId);
+            dataBaseConfig.closePreparedStatement(byVehicle);
+        }
+    }
+
+    private void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back ticket writes", e);
+            }
+        }
+    }
+}
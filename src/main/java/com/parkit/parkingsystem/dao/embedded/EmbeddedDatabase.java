@@ -0,0 +1,211 @@
+package com.parkit.parkingsystem.dao.embedded;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotIndex;
+import com.parkit.parkingsystem.model.CompactTicket;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pure Java storage engine for sites without a database server.
+ * Spots and tickets live in memory, tickets in their compact form; every change is appended to an {@link EmbeddedJournal}
+ * before it becomes visible, and the journal is replayed when the database is opened.
+ * Operations are serialized on the database instance.
+ */
+public class EmbeddedDatabase implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("EmbeddedDatabase");
+
+    /**
+     * The lot created by resources/Data.sql.
+     */
+    public static final List<ParkingSpot> DEFAULT_PARKING_SPOTS = Arrays.asList(
+            new ParkingSpot(1, ParkingType.CAR, true),
+            new ParkingSpot(2, ParkingType.CAR, true),
+            new ParkingSpot(3, ParkingType.CAR, true),
+            new ParkingSpot(4, ParkingType.BIKE, true),
+            new ParkingSpot(5, ParkingType.BIKE, true));
+
+    private final EmbeddedJournal journal;
+    private final ParkingSpotIndex parkingSpotIndex;
+    private final Map<Integer, ParkingType> parkingTypes = new HashMap<>();
+    private final Map<Integer, CompactTicket> tickets = new HashMap<>();
+    private final Map<String, Integer> latestTicketIds = new HashMap<>();
+    private final Map<String, Integer> completedVisits = new HashMap<>();
+    private int lastTicketId;
+
+    private EmbeddedDatabase(EmbeddedJournal journal, Collection<ParkingSpot> parkingSpots) {
+        this.journal = journal;
+        this.parkingSpotIndex = new ParkingSpotIndex(parkingSpots);
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            parkingTypes.put(parkingSpot.getId(), parkingSpot.getParkingType());
+        }
+    }
+
+    /**
+     * Replays the journal; an empty journal is initialized with the given spots.
+     */
+    public static EmbeddedDatabase open(EmbeddedJournal journal, Collection<ParkingSpot> initialParkingSpots)
+            throws IOException {
+        Map<Integer, ParkingSpot> parkingSpots = new LinkedHashMap<>();
+        List<Ticket> tickets = new ArrayList<>();
+        journal.replay(new EmbeddedJournal.Visitor() {
+            @Override
+            public void spot(int parkingNumber, ParkingType parkingType, boolean available) {
+                parkingSpots.put(parkingNumber, new ParkingSpot(parkingNumber, parkingType, available));
+            }
+
+            @Override
+            public void ticket(Ticket ticket) {
+                tickets.add(ticket);
+            }
+        });
+        boolean initialize = parkingSpots.isEmpty();
+        if (initialize) {
+            for (ParkingSpot parkingSpot : initialParkingSpots) {
+                parkingSpots.put(parkingSpot.getId(), parkingSpot);
+            }
+        }
+        EmbeddedDatabase database = new EmbeddedDatabase(journal, parkingSpots.values());
+        if (initialize) {
+            for (ParkingSpot parkingSpot : parkingSpots.values()) {
+                journal.appendSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+            }
+        }
+        for (Ticket ticket : tickets) {
+            database.apply(CompactTicket.of(ticket));
+        }
+        logger.info("Opened embedded database with " + parkingSpots.size() + " parking spots and "
+                + database.tickets.size() + " tickets");
+        return database;
+    }
+
+    public synchronized int getNextAvailableSlot(ParkingType parkingType) {
+        return parkingSpotIndex.peekNextAvailable(parkingType);
+    }
+
+    public synchronized int claimNextAvailableSlot(ParkingType parkingType) throws IOException {
+        int parkingNumber = parkingSpotIndex.peekNextAvailable(parkingType);
+        if (parkingNumber > 0) {
+            journal.appendSpot(parkingNumber, parkingType, false);
+            parkingSpotIndex.setAvailable(parkingNumber, false);
+        }
+        return parkingNumber;
+    }
+
+    /**
+     * @return false if the spot does not exist
+     */
+    public synchronized boolean setAvailable(int parkingNumber, boolean available) throws IOException {
+        ParkingType parkingType = parkingTypes.get(parkingNumber);
+        if (parkingType == null) {
+            return false;
+        }
+        journal.appendSpot(parkingNumber, parkingType, available);
+        parkingSpotIndex.setAvailable(parkingNumber, available);
+        return true;
+    }
+
+    public synchronized int getAvailableSlotCount(ParkingType parkingType) {
+        return parkingSpotIndex.countAvailable(parkingType);
+    }
+
+    public synchronized boolean isAvailable(int parkingNumber) {
+        return parkingSpotIndex.isAvailable(parkingNumber);
+    }
+
+    /**
+     * Saves a new ticket; the check for an open ticket of the vehicle and the insert are one operation,
+     * so two gates cannot both let the same vehicle in.
+     * @return the generated ticket id, or -1 if the ticket is open and the vehicle already has an open ticket
+     */
+    public synchronized int insertTicket(Ticket ticket) throws IOException {
+        ParkingType parkingType = parkingTypes.get(ticket.getParkingSpot().getId());
+        if (parkingType == null) {
+            throw new IllegalArgumentException("Unknown parking spot " + ticket.getParkingSpot().getId());
+        }
+        if (ticket.getOutTime() == null && getOpenTicket(ticket.getVehicleRegNumber()) != null) {
+            return -1;
+        }
+        Ticket stored = new Ticket(ticket);
+        stored.setId(lastTicketId + 1);
+        stored.getParkingSpot().setParkingType(parkingType);
+        journal.appendTicket(stored);
+        apply(CompactTicket.of(stored));
+        return stored.getId();
+    }
+
+    /**
+     * Writes the price and out time of an existing ticket.
+     * @return false if there is no ticket with that id
+     */
+    public synchronized boolean updateTicket(Ticket ticket) throws IOException {
+        CompactTicket stored = tickets.get(ticket.getId());
+        if (stored == null) {
+            return false;
+        }
+        Date outTime = ticket.getOutTime();
+        CompactTicket updated = stored.withExit(outTime == null ? CompactTicket.NO_TIME : outTime.getTime(),
+                Math.round(ticket.getPrice() * 100));
+        journal.appendTicket(updated.toTicket());
+        apply(updated);
+        return true;
+    }
+
+    /**
+     * @return a copy of the latest ticket of the vehicle, or null
+     */
+    public synchronized Ticket getLatestTicket(String vehicleRegNumber) {
+        Integer id = latestTicketIds.get(vehicleRegNumber);
+        return id == null ? null : tickets.get(id).toTicket();
+    }
+
+    /**
+     * @return a copy of the open ticket of the vehicle, or null when it is not inside
+     */
+    public synchronized Ticket getOpenTicket(String vehicleRegNumber) {
+        Integer id = latestTicketIds.get(vehicleRegNumber);
+        CompactTicket latest = id == null ? null : tickets.get(id);
+        return latest != null && latest.isOpen() ? latest.toTicket() : null;
+    }
+
+    public synchronized int getCompletedVisits(String vehicleRegNumber) {
+        return completedVisits.getOrDefault(vehicleRegNumber, 0);
+    }
+
+    public synchronized int getTicketCount() {
+        return tickets.size();
+    }
+
+    private void apply(CompactTicket ticket) {
+        CompactTicket previous = tickets.put(ticket.getId(), ticket);
+        boolean wasCompleted = previous != null && !previous.isOpen();
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        if (!ticket.isOpen() && !wasCompleted) {
+            completedVisits.merge(vehicleRegNumber, 1, Integer::sum);
+        }
+        Integer latestId = latestTicketIds.get(vehicleRegNumber);
+        if (latestId == null || latestId <= ticket.getId()) {
+            latestTicketIds.put(vehicleRegNumber, ticket.getId());
+        }
+        lastTicketId = Math.max(lastTicketId, ticket.getId());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        journal.close();
+    }
+}
@@ -0,0 +1,29 @@
+package com.parkit.parkingsystem.dao.embedded;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Durable log of the changes made to an {@link EmbeddedDatabase}.
+ * Replaying it in order rebuilds the spot and ticket state.
+ */
+public interface EmbeddedJournal extends Closeable {
+
+    interface Visitor {
+        void spot(int parkingNumber, ParkingType parkingType, boolean available);
+
+        /**
+         * A ticket was saved or updated; the latest record for an id wins.
+         */
+        void ticket(Ticket ticket);
+    }
+
+    void replay(Visitor visitor) throws IOException;
+
+    void appendSpot(int parkingNumber, ParkingType parkingType, boolean available) throws IOException;
+
+    void appendTicket(Ticket ticket) throws IOException;
+}
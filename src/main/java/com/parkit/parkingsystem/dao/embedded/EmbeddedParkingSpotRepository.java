@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.dao.embedded;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class EmbeddedParkingSpotRepository implements ParkingSpotRepository {
+
+    private static final Logger logger = LogManager.getLogger("EmbeddedParkingSpotRepository");
+
+    private final EmbeddedDatabase database;
+
+    public EmbeddedParkingSpotRepository(EmbeddedDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return database.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        try {
+            return database.claimNextAvailableSlot(parkingType);
+        } catch (Exception ex) {
+            logger.error("Error claiming parking spot", ex);
+            Metrics.recordError("EmbeddedParkingSpotRepository.claimNextAvailableSlot");
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        try {
+            return database.setAvailable(parkingSpot.getId(), parkingSpot.isAvailable());
+        } catch (Exception ex) {
+            logger.error("Error updating parking info", ex);
+            Metrics.recordError("EmbeddedParkingSpotRepository.updateParking");
+            return false;
+        }
+    }
+
+    @Override
+    public int getAvailableSlotCount(ParkingType parkingType) {
+        return database.getAvailableSlotCount(parkingType);
+    }
+}
@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.dao.embedded;
+
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class EmbeddedTicketRepository implements TicketRepository {
+
+    private static final Logger logger = LogManager.getLogger("EmbeddedTicketRepository");
+
+    private final EmbeddedDatabase database;
+
+    public EmbeddedTicketRepository(EmbeddedDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        try {
+            int id = database.insertTicket(ticket);
+            if (id < 0) {
+                return false;
+            }
+            ticket.setId(id);
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error saving ticket", ex);
+            Metrics.recordError("EmbeddedTicketRepository.saveTicket");
+            return false;
+        }
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return database.getLatestTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public OpenTicket getOpenTicket(String vehicleRegNumber) {
+        Ticket ticket = database.getOpenTicket(vehicleRegNumber);
+        return ticket == null ? null : new OpenTicket(ticket, database.getCompletedVisits(vehicleRegNumber));
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        try {
+            return database.updateTicket(ticket);
+        } catch (Exception ex) {
+            logger.error("Error saving ticket info", ex);
+            Metrics.recordError("EmbeddedTicketRepository.updateTicket");
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isRecurringVehicle(String vehicleRegNumber) {
+        return database.getCompletedVisits(vehicleRegNumber) >= 1;
+    }
+
+    @Override
+    public boolean inside(String vehicleRegNumber) {
+        return database.getOpenTicket(vehicleRegNumber) != null;
+    }
+}
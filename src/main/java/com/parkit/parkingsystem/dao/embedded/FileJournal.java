@@ -0,0 +1,167 @@
+package com.parkit.parkingsystem.dao.embedded;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+/**
+ * Append-only text journal, one record per line:
+ * S;number;type;available for a spot and T;id;number;type;plate;price;inMillis;outMillis for a ticket.
+ * A torn last line left by a crash is cut off when the journal is opened.
+ */
+public class FileJournal implements EmbeddedJournal {
+
+    private static final Logger logger = LogManager.getLogger("FileJournal");
+
+    private static final String SEPARATOR = ";";
+    private static final String NO_TIME = "-";
+
+    private final Path file;
+    private final boolean syncOnWrite;
+    private final FileOutputStream out;
+    private final Writer writer;
+
+    /**
+     * @param syncOnWrite forces every record to disk before returning, otherwise the OS decides when
+     */
+    public FileJournal(Path file, boolean syncOnWrite) throws IOException {
+        this.file = file;
+        this.syncOnWrite = syncOnWrite;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        truncateTornRecord(file);
+        this.out = new FileOutputStream(file.toFile(), true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void replay(Visitor visitor) throws IOException {
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    replayRecord(line.split(SEPARATOR, -1), visitor);
+                } catch (RuntimeException e) {
+                    throw new IOException("Corrupted journal record at line " + lineNumber + " of " + file, e);
+                }
+            }
+        }
+    }
+
+    private static void truncateTornRecord(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = size;
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            while (end > 0) {
+                // through Buffer: the covariant ByteBuffer.clear() of Java 9+ does not exist on a Java 8 runtime
+                ((Buffer) buffer).clear();
+                channel.read(buffer, end - 1);
+                if (buffer.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < size) {
+                logger.warn("Cutting off an incomplete last record of " + (size - end) + " bytes in " + file);
+                channel.truncate(end);
+            }
+        }
+    }
+
+    private void replayRecord(String[] fields, Visitor visitor) throws UnsupportedEncodingException {
+        switch (fields[0]) {
+            case "S":
+                checkFieldCount(fields, 4);
+                visitor.spot(Integer.parseInt(fields[1]), ParkingType.valueOf(fields[2]), parseBoolean(fields[3]));
+                break;
+            case "T": {
+                checkFieldCount(fields, 8);
+                Ticket ticket = new Ticket();
+                ticket.setId(Integer.parseInt(fields[1]));
+                ticket.setParkingSpot(new ParkingSpot(Integer.parseInt(fields[2]), ParkingType.valueOf(fields[3]), false));
+                ticket.setVehicleRegNumber(URLDecoder.decode(fields[4], "UTF-8"));
+                ticket.setPrice(Double.parseDouble(fields[5]));
+                ticket.setInTime(new Date(Long.parseLong(fields[6])));
+                ticket.setOutTime(NO_TIME.equals(fields[7]) ? null : new Date(Long.parseLong(fields[7])));
+                visitor.ticket(ticket);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown journal record type " + fields[0]);
+        }
+    }
+
+    private static void checkFieldCount(String[] fields, int expected) {
+        if (fields.length != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " fields, got " + fields.length);
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        if (!"true".equals(value) && !"false".equals(value)) {
+            throw new IllegalArgumentException("Invalid boolean " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    @Override
+    public void appendSpot(int parkingNumber, ParkingType parkingType, boolean available) throws IOException {
+        write("S" + SEPARATOR + parkingNumber + SEPARATOR + parkingType + SEPARATOR + available);
+    }
+
+    @Override
+    public void appendTicket(Ticket ticket) throws IOException {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        write("T" + SEPARATOR + ticket.getId()
+                + SEPARATOR + parkingSpot.getId()
+                + SEPARATOR + parkingSpot.getParkingType()
+                + SEPARATOR + URLEncoder.encode(ticket.getVehicleRegNumber(), "UTF-8")
+                + SEPARATOR + ticket.getPrice()
+                + SEPARATOR + ticket.getInTime().getTime()
+                + SEPARATOR + (ticket.getOutTime() == null ? NO_TIME : String.valueOf(ticket.getOutTime().getTime())));
+    }
+
+    private void write(String record) throws IOException {
+        writer.write(record);
+        writer.write('\n');
+        writer.flush();
+        if (syncOnWrite) {
+            out.getFD().sync();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
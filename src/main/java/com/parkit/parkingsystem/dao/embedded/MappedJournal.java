@@ -0,0 +1,267 @@
+package com.parkit.parkingsystem.dao.embedded;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of fixed-width binary records written through memory-mapped segment files.
+ * Each segment is preallocated, a new one is started when it is full. Every record ends with a CRC32:
+ * replay stops at the first empty slot, and a bad CRC at the tail (a torn write) is treated as the end.
+ * Not thread safe, the {@link EmbeddedDatabase} serializes the appends.
+ */
+public class MappedJournal implements EmbeddedJournal {
+
+    private static final Logger logger = LogManager.getLogger("MappedJournal");
+
+    static final int RECORD_SIZE = 64;
+    static final int MAX_PLATE_LENGTH = 10;
+
+    private static final byte SPOT_RECORD = 1;
+    private static final byte TICKET_RECORD = 2;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    // record layout
+    private static final int TYPE = 0;
+    private static final int PARKING_TYPE = 1;
+    private static final int PLATE_LENGTH = 2;
+    private static final int AVAILABLE = 3;
+    private static final int TICKET_ID = 4;
+    private static final int PARKING_NUMBER = 8;
+    private static final int PLATE = 12;
+    private static final int PRICE = 32;
+    private static final int IN_TIME = 40;
+    private static final int OUT_TIME = 48;
+    private static final int CRC = 60;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final boolean syncOnWrite;
+    private final ParkingType[] parkingTypes = ParkingType.values();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private long segmentNumber;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+
+    /**
+     * @param segmentSizeBytes size of each segment file, rounded down to a whole number of records
+     * @param syncOnWrite forces every record to disk before returning, otherwise pages are flushed by the OS
+     */
+    public MappedJournal(Path directory, int segmentSizeBytes, boolean syncOnWrite) throws IOException {
+        if (segmentSizeBytes < RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment must hold at least one record");
+        }
+        this.directory = directory;
+        this.recordsPerSegment = segmentSizeBytes / RECORD_SIZE;
+        this.syncOnWrite = syncOnWrite;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public void replay(Visitor visitor) throws IOException {
+        List<Path> segments = listSegments();
+        long lastSegment = 0;
+        int appendSlot = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            lastSegment = segmentNumber(path);
+            appendSlot = replaySegment(path, visitor, i == segments.size() - 1);
+        }
+        if (segments.isEmpty()) {
+            openSegment(1, 0);
+        } else {
+            openSegment(lastSegment, appendSlot);
+        }
+    }
+
+    /**
+     * @return the slot after the last valid record
+     */
+    private int replaySegment(Path path, Visitor visitor, boolean lastSegment) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int slots = (int) (channel.size() / RECORD_SIZE);
+            for (int slot = 0; slot < slots; slot++) {
+                int offset = slot * RECORD_SIZE;
+                byte type = buffer.get(offset + TYPE);
+                if (type == 0) {
+                    return slot;
+                }
+                if (!hasValidCrc(buffer, offset)) {
+                    if (lastSegment && isEmptyFrom(buffer, offset + RECORD_SIZE, slots * RECORD_SIZE)) {
+                        logger.warn("Ignoring torn record at slot " + slot + " of " + path);
+                        return slot;
+                    }
+                    throw new IOException("Corrupted journal record at slot " + slot + " of " + path);
+                }
+                replayRecord(buffer, offset, visitor);
+            }
+            return slots;
+        }
+    }
+
+    private boolean hasValidCrc(ByteBuffer buffer, int offset) {
+        crc.reset();
+        for (int i = 0; i < CRC; i++) {
+            crc.update(buffer.get(offset + i));
+        }
+        return (int) crc.getValue() == buffer.getInt(offset + CRC);
+    }
+
+    private static boolean isEmptyFrom(ByteBuffer buffer, int from, int to) {
+        for (int offset = from; offset < to; offset += RECORD_SIZE) {
+            if (buffer.get(offset + TYPE) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void replayRecord(ByteBuffer buffer, int offset, Visitor visitor) throws IOException {
+        byte type = buffer.get(offset + TYPE);
+        ParkingType parkingType = parkingTypes[buffer.get(offset + PARKING_TYPE)];
+        int parkingNumber = buffer.getInt(offset + PARKING_NUMBER);
+        if (type == SPOT_RECORD) {
+            visitor.spot(parkingNumber, parkingType, buffer.get(offset + AVAILABLE) == 1);
+            return;
+        }
+        if (type != TICKET_RECORD) {
+            throw new IOException("Unknown journal record type " + type);
+        }
+        char[] plate = new char[buffer.get(offset + PLATE_LENGTH)];
+        for (int i = 0; i < plate.length; i++) {
+            plate[i] = buffer.getChar(offset + PLATE + 2 * i);
+        }
+        long outTime = buffer.getLong(offset + OUT_TIME);
+        Ticket ticket = new Ticket();
+        ticket.setId(buffer.getInt(offset + TICKET_ID));
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+        ticket.setVehicleRegNumber(new String(plate));
+        ticket.setPrice(buffer.getDouble(offset + PRICE));
+        ticket.setInTime(new Date(buffer.getLong(offset + IN_TIME)));
+        ticket.setOutTime(outTime == NO_TIME ? null : new Date(outTime));
+        visitor.ticket(ticket);
+    }
+
+    @Override
+    public void appendSpot(int parkingNumber, ParkingType parkingType, boolean available) throws IOException {
+        clearRecord(SPOT_RECORD, parkingType, parkingNumber);
+        record.put(AVAILABLE, (byte) (available ? 1 : 0));
+        append();
+    }
+
+    @Override
+    public void appendTicket(Ticket ticket) throws IOException {
+        String plate = ticket.getVehicleRegNumber();
+        if (plate.length() > MAX_PLATE_LENGTH) {
+            throw new IllegalArgumentException("Registration number longer than " + MAX_PLATE_LENGTH + " characters: " + plate);
+        }
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        clearRecord(TICKET_RECORD, parkingSpot.getParkingType(), parkingSpot.getId());
+        record.put(PLATE_LENGTH, (byte) plate.length());
+        record.putInt(TICKET_ID, ticket.getId());
+        for (int i = 0; i < plate.length(); i++) {
+            record.putChar(PLATE + 2 * i, plate.charAt(i));
+        }
+        record.putDouble(PRICE, ticket.getPrice());
+        record.putLong(IN_TIME, ticket.getInTime().getTime());
+        record.putLong(OUT_TIME, ticket.getOutTime() == null ? NO_TIME : ticket.getOutTime().getTime());
+        append();
+    }
+
+    private void clearRecord(byte type, ParkingType parkingType, int parkingNumber) {
+        for (int i = 0; i < RECORD_SIZE; i++) {
+            record.put(i, (byte) 0);
+        }
+        record.put(TYPE, type);
+        record.put(PARKING_TYPE, (byte) parkingType.ordinal());
+        record.putInt(PARKING_NUMBER, parkingNumber);
+    }
+
+    private void append() throws IOException {
+        if (segment == null) {
+            throw new IOException("Journal must be replayed before appending");
+        }
+        if (!segment.hasRemaining()) {
+            segment.force();
+            openSegment(segmentNumber + 1, 0);
+        }
+        crc.reset();
+        crc.update(record.array(), 0, CRC);
+        record.putInt(CRC, (int) crc.getValue());
+        // the type byte goes last so a reader never sees a record marked as written before its content
+        int position = segment.position();
+        // through Buffer: the covariant MappedByteBuffer.position(int) of Java 9+ does not exist on a Java 8 runtime
+        ((Buffer) segment).position(position + 1);
+        segment.put(record.array(), 1, RECORD_SIZE - 1);
+        segment.put(position, record.get(TYPE));
+        if (syncOnWrite) {
+            segment.force();
+        }
+    }
+
+    private void openSegment(long number, int slot) throws IOException {
+        closeSegment();
+        Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        segmentChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // a segment written with a larger size setting is kept whole
+        long size = Math.max(segmentChannel.size() / RECORD_SIZE, recordsPerSegment) * RECORD_SIZE;
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        ((Buffer) segment).position(slot * RECORD_SIZE);
+        segmentNumber = number;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+        if (segmentChannel != null) {
+            segmentChannel.close();
+            segmentChannel = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+}
@@ -0,0 +1,162 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+/**
+ * Immutable, memory-lean form of a {@link Ticket} for the stores that hold many of them: times in epoch millis,
+ * the price in cents, the spot as its shared {@link ParkingSpotRef}, and the plate packed into a long when it fits.
+ * It takes about a third of the heap of a Ticket with its dates, spot and plate string.
+ * Code working on Ticket goes through {@link #of(Ticket)} and {@link #toTicket()}.
+ */
+public final class CompactTicket {
+
+    /**
+     * Out time of a ticket still open.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final int BITS_PER_CHAR = 6;
+    private static final int MAX_PACKED_LENGTH = Long.SIZE / BITS_PER_CHAR;
+    // code 0 ends the plate, so a packed plate is never 0
+    private static final String PLATE_ALPHABET =
+            "\0" + "0123456789" + "ABCDEFGHIJKLMNOPQRSTUVWXYZ" + "abcdefghijklmnopqrstuvwxyz" + "-";
+    private static final byte[] PLATE_CODES = new byte[128];
+
+    static {
+        for (int code = 1; code < PLATE_ALPHABET.length(); code++) {
+            PLATE_CODES[PLATE_ALPHABET.charAt(code)] = (byte) code;
+        }
+    }
+
+    private final int id;
+    private final ParkingSpotRef parkingSpot;
+    private final long packedPlate;
+    private final String plate;
+    private final long inTime;
+    private final long outTime;
+    private final long priceCents;
+
+    private CompactTicket(int id, ParkingSpotRef parkingSpot, long packedPlate, String plate,
+                          long inTime, long outTime, long priceCents) {
+        this.id = id;
+        this.parkingSpot = parkingSpot;
+        this.packedPlate = packedPlate;
+        this.plate = plate;
+        this.inTime = inTime;
+        this.outTime = outTime;
+        this.priceCents = priceCents;
+    }
+
+    public static CompactTicket of(int id, int parkingNumber, ParkingType parkingType, String vehicleRegNumber,
+                                   long inTime, long outTime, long priceCents) {
+        long packedPlate = packPlate(vehicleRegNumber);
+        return new CompactTicket(id, ParkingSpotRef.of(parkingNumber, parkingType), packedPlate,
+                packedPlate == 0 ? vehicleRegNumber : null, inTime, outTime, priceCents);
+    }
+
+    /**
+     * @return the compact form of the ticket, its price rounded to the cent
+     */
+    public static CompactTicket of(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        Date outTime = ticket.getOutTime();
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        long packedPlate = packPlate(vehicleRegNumber);
+        return new CompactTicket(ticket.getId(),
+                parkingSpot == null ? null : ParkingSpotRef.of(parkingSpot.getId(), parkingSpot.getParkingType()),
+                packedPlate, packedPlate == 0 ? vehicleRegNumber : null, ticket.getInTime().getTime(),
+                outTime == null ? NO_TIME : outTime.getTime(), Math.round(ticket.getPrice() * 100));
+    }
+
+    /**
+     * @return a new Ticket with a spot of its own, which the caller may change
+     */
+    public Ticket toTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(parkingSpot == null ? null : parkingSpot.toParkingSpot());
+        ticket.setVehicleRegNumber(getVehicleRegNumber());
+        ticket.setPrice(priceCents / 100.0);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(outTime == NO_TIME ? null : new Date(outTime));
+        return ticket;
+    }
+
+    public CompactTicket withId(int newId) {
+        return new CompactTicket(newId, parkingSpot, packedPlate, plate, inTime, outTime, priceCents);
+    }
+
+    public CompactTicket withExit(long newOutTime, long newPriceCents) {
+        return new CompactTicket(id, parkingSpot, packedPlate, plate, inTime, newOutTime, newPriceCents);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the shared instance of the spot, or null for a ticket without one
+     */
+    public ParkingSpotRef getParkingSpot() {
+        return parkingSpot;
+    }
+
+    public String getVehicleRegNumber() {
+        return packedPlate == 0 ? plate : unpackPlate(packedPlate);
+    }
+
+    public long getInTime() {
+        return inTime;
+    }
+
+    /**
+     * @return the out time, or {@link #NO_TIME} while the ticket is open
+     */
+    public long getOutTime() {
+        return outTime;
+    }
+
+    public boolean isOpen() {
+        return outTime == NO_TIME;
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    /**
+     * Packs plates of up to 10 letters, digits and dashes, six bits per character.
+     * @return the packed plate, or 0 when it does not fit and has to be kept as a string
+     */
+    static long packPlate(String vehicleRegNumber) {
+        if (vehicleRegNumber == null || vehicleRegNumber.isEmpty() || vehicleRegNumber.length() > MAX_PACKED_LENGTH) {
+            return 0;
+        }
+        long packed = 0;
+        for (int i = vehicleRegNumber.length() - 1; i >= 0; i--) {
+            char c = vehicleRegNumber.charAt(i);
+            if (c >= PLATE_CODES.length || PLATE_CODES[c] == 0) {
+                return 0;
+            }
+            packed = packed << BITS_PER_CHAR | PLATE_CODES[c];
+        }
+        return packed;
+    }
+
+    static String unpackPlate(long packed) {
+        char[] chars = new char[MAX_PACKED_LENGTH];
+        int length = 0;
+        for (; packed != 0; packed >>>= BITS_PER_CHAR) {
+            chars[length++] = PLATE_ALPHABET.charAt((int) (packed & ((1 << BITS_PER_CHAR) - 1)));
+        }
+        return new String(chars, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return "CompactTicket{id=" + id + ", parkingSpot=" + parkingSpot + ", vehicleRegNumber="
+                + getVehicleRegNumber() + ", inTime=" + inTime + ", outTime=" + outTime + ", priceCents=" + priceCents + "}";
+    }
+}
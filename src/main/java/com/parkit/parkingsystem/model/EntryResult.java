@@ -0,0 +1,33 @@
+package com.parkit.parkingsystem.model;
+
+public class EntryResult {
+
+    public enum Status {
+        PARKED,
+        ALREADY_INSIDE,
+        PARKING_FULL,
+        ERROR
+    }
+
+    private final Status status;
+    private final Ticket ticket;
+    private final boolean recurringVehicle;
+
+    public EntryResult(Status status, Ticket ticket, boolean recurringVehicle) {
+        this.status = status;
+        this.ticket = ticket;
+        this.recurringVehicle = recurringVehicle;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public boolean isRecurringVehicle() {
+        return recurringVehicle;
+    }
+}
@@ -0,0 +1,29 @@
+package com.parkit.parkingsystem.model;
+
+public class ExitResult {
+
+    public enum Status {
+        EXITED,
+        NOT_INSIDE,
+        ERROR
+    }
+
+    private final Status status;
+    private final Ticket ticket;
+
+    public ExitResult(Status status, Ticket ticket) {
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the closed ticket with its price and out time, null unless the vehicle exited
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
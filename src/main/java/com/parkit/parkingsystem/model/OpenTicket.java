@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * A ticket still open (no out time) together with the loyalty status of its vehicle.
+ */
+public class OpenTicket {
+
+    private final Ticket ticket;
+    private final int previousVisits;
+    private final boolean recurringVehicle;
+
+    public OpenTicket(Ticket ticket, int previousVisits) {
+        this.ticket = ticket;
+        this.previousVisits = previousVisits;
+        this.recurringVehicle = previousVisits >= 1;
+    }
+
+    /**
+     * For an open ticket answered from memory, where only the loyalty status is known.
+     */
+    public OpenTicket(Ticket ticket, boolean recurringVehicle) {
+        this.ticket = ticket;
+        this.previousVisits = -1;
+        this.recurringVehicle = recurringVehicle;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * @return the number of completed visits before this one, or -1 when it was not counted
+     */
+    public int getPreviousVisits() {
+        return previousVisits;
+    }
+
+    public boolean isRecurringVehicle() {
+        return recurringVehicle;
+    }
+}
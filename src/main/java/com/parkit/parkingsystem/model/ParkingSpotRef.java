@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable identity of a parking spot, one shared instance per spot number, for the tickets held in bulk.
+ * A spot whose availability is changed and written back is a {@link ParkingSpot} of its own.
+ */
+public final class ParkingSpotRef {
+
+    private static final ConcurrentHashMap<Integer, ParkingSpotRef> canonicalRefs = new ConcurrentHashMap<>();
+
+    private final int number;
+    private final ParkingType parkingType;
+
+    private ParkingSpotRef(int number, ParkingType parkingType) {
+        this.number = number;
+        this.parkingType = parkingType;
+    }
+
+    /**
+     * @return the shared instance of the spot, replaced if the spot changed type
+     */
+    public static ParkingSpotRef of(int number, ParkingType parkingType) {
+        // the lock of compute is only taken on a miss or a type change, lookups of a known spot read without it
+        ParkingSpotRef known = canonicalRefs.get(number);
+        if (known != null && known.parkingType == parkingType) {
+            return known;
+        }
+        return canonicalRefs.compute(number, (key, ref) ->
+                ref != null && ref.parkingType == parkingType ? ref : new ParkingSpotRef(number, parkingType));
+    }
+
+    public int getId() {
+        return number;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * @return a new, occupied spot the caller may change
+     */
+    public ParkingSpot toParkingSpot() {
+        return new ParkingSpot(number, parkingType, false);
+    }
+
+    @Override
+    public String toString() {
+        return "ParkingSpotRef{number=" + number + ", parkingType=" + parkingType + "}";
+    }
+}
@@ -10,6 +10,19 @@ public class Ticket {
     private Date inTime;
     private Date outTime;
 
+    public Ticket() {
+    }
+
+    public Ticket(Ticket other) {
+        this.id = other.id;
+        this.parkingSpot = other.parkingSpot == null ? null
+                : new ParkingSpot(other.parkingSpot.getId(), other.parkingSpot.getParkingType(), other.parkingSpot.isAvailable());
+        this.vehicleRegNumber = other.vehicleRegNumber;
+        this.price = other.price;
+        this.inTime = other.inTime == null ? null : (Date) other.inTime.clone();
+        this.outTime = other.outTime == null ? null : (Date) other.outTime.clone();
+    }
+
     public int getId() {
         return id;
     }
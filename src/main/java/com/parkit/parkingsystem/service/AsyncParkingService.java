@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.ParkingTransactionDAO;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.util.Metrics;
+import com.parkit.parkingsystem.util.OperationStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking counterpart of {@link ParkingService#enterVehicle} and {@link ParkingService#exitVehicle}:
+ * the repository calls run on the given executor and independent lookups run in parallel,
+ * so one controller thread can drive many lanes. With write-behind the ticket writes are chained
+ * on the write queue instead of waited for. The futures never complete exceptionally, failures give an ERROR result.
+ */
+public class AsyncParkingService {
+
+    private static final Logger logger = LogManager.getLogger("AsyncParkingService");
+    private static final OperationStats enterVehicleStats = Metrics.get("AsyncParkingService.enterVehicle");
+    private static final OperationStats exitVehicleStats = Metrics.get("AsyncParkingService.exitVehicle");
+
+    private final GateFlow gateFlow;
+    private final Executor executor;
+
+    /**
+     * @param parkingTransactionDAO when given, each gate operation runs as a single transaction on the executor
+     */
+    public AsyncParkingService(ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO,
+                               ParkingTransactionDAO parkingTransactionDAO, Executor executor) {
+        this.gateFlow = new GateFlow(parkingSpotDAO, ticketDAO, parkingTransactionDAO);
+        this.executor = executor;
+    }
+
+    public CompletableFuture<EntryResult> enterVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        long start = System.nanoTime();
+        return gateFlow.enterVehicle(parkingType, vehicleRegNumber, inTime, executor)
+                .exceptionally(e -> {
+                    logger.error("Unable to process incoming vehicle", e);
+                    return new EntryResult(EntryResult.Status.ERROR, null, false);
+                }).whenComplete((result, e) -> {
+                    enterVehicleStats.record(System.nanoTime() - start);
+                    if (result.getStatus() == EntryResult.Status.ERROR) {
+                        enterVehicleStats.recordError();
+                    }
+                });
+    }
+
+    public CompletableFuture<ExitResult> exitVehicle(String vehicleRegNumber, Date outTime) {
+        long start = System.nanoTime();
+        return gateFlow.exitVehicle(vehicleRegNumber, outTime, executor)
+                .exceptionally(e -> {
+                    logger.error("Unable to process exiting vehicle", e);
+                    return new ExitResult(ExitResult.Status.ERROR, null);
+                }).whenComplete((result, e) -> {
+                    exitVehicleStats.record(System.nanoTime() - start);
+                    if (result.getStatus() == ExitResult.Status.ERROR) {
+                        exitVehicleStats.recordError();
+                    }
+                });
+    }
+}
@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Streams a log of gate events through {@link ParkingService}, one line per event:
+ * <pre>
+ * 2024-05-02T08:15:00,ENTRY,AB-123-CD,CAR
+ * 2024-05-02T09:40:00,EXIT,AB-123-CD
+ * </pre>
+ * Times are local date times of the lot and are used as the entry and exit times.
+ * Blank lines and lines starting with # are skipped.
+ */
+public class EventReplay {
+
+    private static final Logger logger = LogManager.getLogger("EventReplay");
+
+    private final ParkingService parkingService;
+    private final ZoneId zoneId;
+
+    public EventReplay(ParkingService parkingService, ZoneId zoneId) {
+        this.parkingService = parkingService;
+        this.zoneId = zoneId;
+    }
+
+    public Summary replay(Reader events) throws IOException {
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        BufferedReader reader = events instanceof BufferedReader ? (BufferedReader) events : new BufferedReader(events);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                replayEvent(line.split(","), summary);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                logger.error("Skipping malformed event at line " + lineNumber + ": " + line, e);
+                summary.malformed++;
+            }
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private void replayEvent(String[] fields, Summary summary) {
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("Expected time, event type and registration number");
+        }
+        Date time = Date.from(LocalDateTime.parse(fields[0].trim()).atZone(zoneId).toInstant());
+        String vehicleRegNumber = fields[2].trim();
+        switch (fields[1].trim()) {
+            case "ENTRY": {
+                if (fields.length < 4) {
+                    throw new IllegalArgumentException("Entry event without vehicle type");
+                }
+                ParkingType parkingType = ParkingType.valueOf(fields[3].trim());
+                EntryResult entryResult = parkingService.enterVehicle(parkingType, vehicleRegNumber, time);
+                summary.entries.merge(entryResult.getStatus(), 1L, Long::sum);
+                break;
+            }
+            case "EXIT": {
+                ExitResult exitResult = parkingService.exitVehicle(vehicleRegNumber, time);
+                summary.exits.merge(exitResult.getStatus(), 1L, Long::sum);
+                if (exitResult.getStatus() == ExitResult.Status.EXITED) {
+                    summary.revenue += exitResult.getTicket().getPrice();
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown event type " + fields[1]);
+        }
+    }
+
+    public static class Summary {
+        private final Map<EntryResult.Status, Long> entries = new EnumMap<>(EntryResult.Status.class);
+        private final Map<ExitResult.Status, Long> exits = new EnumMap<>(ExitResult.Status.class);
+        private long malformed;
+        private double revenue;
+        private long elapsedNanos;
+
+        public long getEntries(EntryResult.Status status) {
+            return entries.getOrDefault(status, 0L);
+        }
+
+        public long getExits(ExitResult.Status status) {
+            return exits.getOrDefault(status, 0L);
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+
+        public long getEventCount() {
+            long count = malformed;
+            for (long value : entries.values()) {
+                count += value;
+            }
+            for (long value : exits.values()) {
+                count += value;
+            }
+            return count;
+        }
+
+        public double getEventsPerSecond() {
+            return elapsedNanos == 0 ? 0 : getEventCount() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Replayed %d events in %.3f s (%.0f events/s)%n entries: %s%n exits: %s%n"
+                            + " malformed: %d%n revenue: %.2f",
+                    getEventCount(), elapsedNanos / 1e9, getEventsPerSecond(), entries, exits, malformed, revenue);
+        }
+    }
+}
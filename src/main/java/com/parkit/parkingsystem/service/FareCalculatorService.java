@@ -1,13 +1,15 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.constants.Fare;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketRepository;
 import com.parkit.parkingsystem.model.Ticket;
 
 public class FareCalculatorService {
-    TicketDAO recurringVehicle;
+    private static volatile Tariff tariff;
 
-    public FareCalculatorService(TicketDAO recurringVehicle) {
+    TicketRepository recurringVehicle;
+
+    public FareCalculatorService(TicketRepository recurringVehicle) {
         this.recurringVehicle = recurringVehicle;
     }
 
@@ -15,41 +17,40 @@ public class FareCalculatorService {
         if( (ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime())) ){
             throw new IllegalArgumentException("Out time provided is incorrect:"+ticket.getOutTime().toString());
         }
+        calculateFare(ticket, recurringVehicle.isRecurringVehicle(ticket.getVehicleRegNumber()));
+    }
 
-        boolean recurringRegNumber = recurringVehicle.isRecurringVehicle(ticket.getVehicleRegNumber());
-        double discount = 1;
-        if (recurringRegNumber){
-            discount =0.95;
+    /**
+     * Prices the ticket with an already known loyalty status, no database lookup.
+     */
+    public void calculateFare(Ticket ticket, boolean recurringRegNumber){
+        if( (ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime())) ){
+            throw new IllegalArgumentException("Out time provided is incorrect:"+ticket.getOutTime().toString());
         }
 
+        ticket.setPrice(priceCents(ticket.getParkingSpot().getParkingType(), ticket.getInTime().getTime(),
+                ticket.getOutTime().getTime(), recurringRegNumber) / 100.0);
+   }
 
-        /** we used getTime to transform time in milliseconds and transform it another
-         * time in hour
-         */
-
-        long inHour = ticket.getInTime().getTime();
-        long outHour = ticket.getOutTime().getTime();
-
-
-        double duration = (double)(outHour - inHour)/ (1000*60*60);
+    /**
+     * Prices a stay with the installed tariff, or with the built-in rules when there is none.
+     */
+    public static long priceCents(ParkingType parkingType, long inTime, long outTime, boolean recurringVehicle) {
+        Tariff currentTariff = tariff;
+        return currentTariff != null
+                ? currentTariff.priceCents(parkingType, inTime, outTime, recurringVehicle)
+                : FareEngine.priceCents(parkingType, inTime, outTime, recurringVehicle);
+    }
 
-        // we applied free half hour in price
-        final double FREE_TIME = 0.5;
-        if(duration <FREE_TIME)
-            duration = 0;
-        else
-            duration = duration - FREE_TIME;
+    /**
+     * Swaps the tariff every gate prices with, a fare being computed keeps the tariff it started with.
+     * @param newTariff null to go back to the built-in rules of {@link FareEngine}
+     */
+    public static void setTariff(Tariff newTariff) {
+        tariff = newTariff;
+    }
 
-        switch (ticket.getParkingSpot().getParkingType()){
-            case CAR: {
-                ticket.setPrice((double)Math.round(duration * Fare.CAR_RATE_PER_HOUR * discount*100)/100);
-                break;
-            }
-            case BIKE: {
-               ticket.setPrice((double)Math.round(duration * Fare.BIKE_RATE_PER_HOUR * discount*100)/100);
-                break;
-            }
-            default: throw new IllegalArgumentException("Unknown Parking Type");
-        }
-   }
+    public static Tariff getTariff() {
+        return tariff;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * The fare rules on primitives: epoch millis in, cents out, nothing allocated per call.
+ * The first half hour is free, then the hourly rate applies per millisecond, with 5% off for recurring vehicles,
+ * rounded half up to the cent.
+ */
+public final class FareEngine {
+
+    private static final long MILLIS_PER_HOUR = 60 * 60 * 1000;
+    private static final long FREE_MILLIS = MILLIS_PER_HOUR / 2;
+    private static final long CAR_CENTS_PER_HOUR = Math.round(Fare.CAR_RATE_PER_HOUR * 100);
+    private static final long BIKE_CENTS_PER_HOUR = Math.round(Fare.BIKE_RATE_PER_HOUR * 100);
+    private static final long RECURRING_PERCENT = 95;
+
+    private FareEngine() {
+    }
+
+    public static long priceCents(ParkingType parkingType, long inTimeMillis, long outTimeMillis,
+                                  boolean recurringVehicle) {
+        if (outTimeMillis < inTimeMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect:" + outTimeMillis);
+        }
+        long centsPerHour;
+        switch (parkingType) {
+            case CAR:
+                centsPerHour = CAR_CENTS_PER_HOUR;
+                break;
+            case BIKE:
+                centsPerHour = BIKE_CENTS_PER_HOUR;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown Parking Type");
+        }
+        long billableMillis = outTimeMillis - inTimeMillis - FREE_MILLIS;
+        if (billableMillis <= 0) {
+            return 0;
+        }
+        long percent = recurringVehicle ? RECURRING_PERCENT : 100;
+        // cents = billableMillis * centsPerHour * percent / (MILLIS_PER_HOUR * 100), rounded half up
+        long numerator = billableMillis * centsPerHour * percent;
+        long denominator = MILLIS_PER_HOUR * 100;
+        long cents = numerator / denominator;
+        long twiceRemainder = 2 * (numerator % denominator);
+        if (twiceRemainder > denominator) {
+            return cents + 1;
+        }
+        if (twiceRemainder == denominator) {
+            return roundTieLikeDoubles(parkingType, billableMillis, recurringVehicle);
+        }
+        return cents;
+    }
+
+    /**
+     * On an exact half cent the historical double computation can land just below or above the tie,
+     * so it is replayed to keep every price identical to what was charged before.
+     */
+    private static long roundTieLikeDoubles(ParkingType parkingType, long billableMillis, boolean recurringVehicle) {
+        double duration = (double) (billableMillis + FREE_MILLIS) / MILLIS_PER_HOUR - 0.5;
+        double rate = parkingType == ParkingType.CAR ? Fare.CAR_RATE_PER_HOUR : Fare.BIKE_RATE_PER_HOUR;
+        return Math.round(duration * rate * (recurringVehicle ? 0.95 : 1) * 100);
+    }
+}
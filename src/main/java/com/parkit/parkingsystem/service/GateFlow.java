@@ -0,0 +1,142 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.ParkingTransactionDAO;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The entry and exit of a vehicle, written once for {@link ParkingService} and {@link AsyncParkingService}.
+ * Repository calls run on the given executor; with {@link #DIRECT} the whole flow runs on the calling thread,
+ * waiting for write-behind commits instead of continuing on the writer thread.
+ * Failures complete the futures exceptionally, the services turn them into ERROR results.
+ */
+final class GateFlow {
+
+    private static final Logger logger = LogManager.getLogger("GateFlow");
+
+    static final Executor DIRECT = Runnable::run;
+
+    private final ParkingSpotRepository parkingSpotDAO;
+    private final TicketRepository ticketDAO;
+    private final ParkingTransactionDAO parkingTransactionDAO;
+
+    /**
+     * @param parkingTransactionDAO when given, each gate operation runs as a single transaction
+     */
+    GateFlow(ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO,
+             ParkingTransactionDAO parkingTransactionDAO) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.parkingTransactionDAO = parkingTransactionDAO;
+    }
+
+    CompletableFuture<EntryResult> enterVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime,
+                                                Executor executor) {
+        if (parkingTransactionDAO != null) {
+            return CompletableFuture.supplyAsync(
+                    () -> parkingTransactionDAO.enterVehicle(parkingType, vehicleRegNumber, inTime), executor);
+        }
+        CompletableFuture<Boolean> recurringVehicle = CompletableFuture.supplyAsync(
+                () -> ticketDAO.isRecurringVehicle(vehicleRegNumber), executor);
+        CompletableFuture<Boolean> carInside = CompletableFuture.supplyAsync(
+                () -> ticketDAO.inside(vehicleRegNumber), executor);
+        return recurringVehicle.thenCombine(carInside, (recurring, inside) -> inside
+                        ? CompletableFuture.completedFuture(new EntryResult(EntryResult.Status.ALREADY_INSIDE, null, recurring))
+                        : parkVehicle(parkingType, vehicleRegNumber, inTime, recurring, executor))
+                .thenCompose(result -> result);
+    }
+
+    private CompletableFuture<EntryResult> parkVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime,
+                                                       boolean recurringVehicle, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotDAO.claimNextAvailableSlot(parkingType), executor)
+                .thenCompose(parkingNumber -> {
+                    if (parkingNumber <= 0) {
+                        return CompletableFuture.completedFuture(
+                                new EntryResult(EntryResult.Status.PARKING_FULL, null, recurringVehicle));
+                    }
+                    ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+                    Ticket ticket = new Ticket();
+                    ticket.setParkingSpot(parkingSpot);
+                    ticket.setVehicleRegNumber(vehicleRegNumber);
+                    ticket.setPrice(0);
+                    ticket.setInTime(inTime);
+                    ticket.setOutTime(null);
+                    return saveTicket(ticket, executor).thenApplyAsync(saved -> {
+                        if (!saved) {
+                            parkingSpot.setAvailable(true);
+                            parkingSpotDAO.updateParking(parkingSpot);
+                            // the store allows one open ticket per vehicle: another gate may have let it in meanwhile
+                            return new EntryResult(ticketDAO.inside(vehicleRegNumber)
+                                    ? EntryResult.Status.ALREADY_INSIDE : EntryResult.Status.ERROR, null, recurringVehicle);
+                        }
+                        return new EntryResult(EntryResult.Status.PARKED, ticket, recurringVehicle);
+                    }, executor);
+                });
+    }
+
+    private CompletableFuture<Boolean> saveTicket(Ticket ticket, Executor executor) {
+        if (ticketDAO.isWriteBehindEnabled()) {
+            try {
+                return awaitIfDirect(ticketDAO.saveTicketAsync(ticket), executor);
+            } catch (Exception e) {
+                logger.error("Unable to queue ticket", e);
+                return CompletableFuture.completedFuture(false);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return ticketDAO.saveTicket(ticket);
+            } catch (Exception e) {
+                logger.error("Unable to save ticket", e);
+                return false;
+            }
+        }, executor);
+    }
+
+    CompletableFuture<ExitResult> exitVehicle(String vehicleRegNumber, Date outTime, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> ticketDAO.getOpenTicket(vehicleRegNumber), executor)
+                .thenCompose(openTicket -> openTicket == null
+                        ? CompletableFuture.completedFuture(new ExitResult(ExitResult.Status.NOT_INSIDE, null))
+                        : closeTicket(openTicket, outTime, executor));
+    }
+
+    private CompletableFuture<ExitResult> closeTicket(OpenTicket openTicket, Date outTime, Executor executor) {
+        Ticket ticket = openTicket.getTicket();
+        ticket.setOutTime(outTime);
+        new FareCalculatorService(ticketDAO).calculateFare(ticket, openTicket.isRecurringVehicle());
+        if (parkingTransactionDAO != null) {
+            return CompletableFuture.supplyAsync(() -> parkingTransactionDAO.closeTicket(ticket)
+                    ? new ExitResult(ExitResult.Status.EXITED, ticket)
+                    : new ExitResult(ExitResult.Status.ERROR, null), executor);
+        }
+        CompletableFuture<Boolean> updated = ticketDAO.isWriteBehindEnabled()
+                ? awaitIfDirect(ticketDAO.updateTicketAsync(ticket), executor)
+                : CompletableFuture.supplyAsync(() -> ticketDAO.updateTicket(ticket), executor);
+        return updated.thenApplyAsync(closed -> {
+            if (!closed) {
+                return new ExitResult(ExitResult.Status.ERROR, null);
+            }
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            parkingSpot.setAvailable(true);
+            parkingSpotDAO.updateParking(parkingSpot);
+            return new ExitResult(ExitResult.Status.EXITED, ticket);
+        }, executor);
+    }
+
+    // a caller running the flow on its own thread continues there, not on the ticket writer thread
+    private static CompletableFuture<Boolean> awaitIfDirect(CompletableFuture<Boolean> write, Executor executor) {
+        return executor == DIRECT ? CompletableFuture.completedFuture(write.join()) : write;
+    }
+}
@@ -0,0 +1,249 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP front end for the barrier controllers, on the JDK's built-in server.
+ * Parameters are read from the query string or a form encoded body, responses are JSON:
+ * <pre>
+ * POST /entry?vehicleRegNumber=AB-123-CD&amp;parkingType=CAR
+ * POST /exit?vehicleRegNumber=AB-123-CD
+ * GET  /quote?vehicleRegNumber=AB-123-CD
+ * GET  /occupancy
+ * </pre>
+ * Requests are handled on a fixed pool of worker threads, sized for gate calls that wait on the database.
+ */
+public class GateHttpServer {
+
+    private static final Logger logger = LogManager.getLogger("GateHttpServer");
+
+    private final ParkingService parkingService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public GateHttpServer(ParkingService parkingService, InetSocketAddress address, int workerThreads) throws IOException {
+        this.parkingService = parkingService;
+        this.server = HttpServer.create(address, 1024);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "gate-http-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/entry", handler("POST", this::entry));
+        server.createContext("/exit", handler("POST", this::exit));
+        server.createContext("/quote", handler("GET", this::quote));
+        server.createContext("/occupancy", handler("GET", this::occupancy));
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Gate API listening on port " + getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Endpoint {
+        Response handle(Map<String, String> parameters);
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Response entry(Map<String, String> parameters) {
+        String vehicleRegNumber = parameters.get("vehicleRegNumber");
+        ParkingType parkingType;
+        try {
+            parkingType = ParkingType.valueOf(parameters.getOrDefault("parkingType", ""));
+        } catch (IllegalArgumentException e) {
+            return error(400, "parkingType must be one of CAR, BIKE");
+        }
+        if (isBlank(vehicleRegNumber)) {
+            return error(400, "vehicleRegNumber is required");
+        }
+        EntryResult entryResult = parkingService.enterVehicle(parkingType, vehicleRegNumber, new Date());
+        Ticket ticket = entryResult.getTicket();
+        switch (entryResult.getStatus()) {
+            case PARKED:
+                return new Response(200, "{\"status\":\"PARKED\",\"vehicleRegNumber\":" + quote(vehicleRegNumber)
+                        + ",\"parkingNumber\":" + ticket.getParkingSpot().getId()
+                        + ",\"inTime\":" + quote(ticket.getInTime().toInstant().toString())
+                        + ",\"recurringVehicle\":" + entryResult.isRecurringVehicle() + "}");
+            case ALREADY_INSIDE:
+            case PARKING_FULL:
+                return new Response(409, "{\"status\":" + quote(entryResult.getStatus().name()) + "}");
+            default:
+                return error(500, "Unable to register vehicle entry");
+        }
+    }
+
+    private Response exit(Map<String, String> parameters) {
+        String vehicleRegNumber = parameters.get("vehicleRegNumber");
+        if (isBlank(vehicleRegNumber)) {
+            return error(400, "vehicleRegNumber is required");
+        }
+        ExitResult exitResult = parkingService.exitVehicle(vehicleRegNumber, new Date());
+        switch (exitResult.getStatus()) {
+            case EXITED: {
+                Ticket ticket = exitResult.getTicket();
+                return new Response(200, "{\"status\":\"EXITED\",\"vehicleRegNumber\":" + quote(vehicleRegNumber)
+                        + ",\"parkingNumber\":" + ticket.getParkingSpot().getId()
+                        + ",\"price\":" + ticket.getPrice()
+                        + ",\"outTime\":" + quote(ticket.getOutTime().toInstant().toString()) + "}");
+            }
+            case NOT_INSIDE:
+                return new Response(404, "{\"status\":\"NOT_INSIDE\"}");
+            default:
+                return error(500, "Unable to update ticket information");
+        }
+    }
+
+    private Response quote(Map<String, String> parameters) {
+        String vehicleRegNumber = parameters.get("vehicleRegNumber");
+        if (isBlank(vehicleRegNumber)) {
+            return error(400, "vehicleRegNumber is required");
+        }
+        Ticket ticket = parkingService.quoteFare(vehicleRegNumber, new Date());
+        if (ticket == null) {
+            return new Response(404, "{\"status\":\"NOT_INSIDE\"}");
+        }
+        return new Response(200, "{\"vehicleRegNumber\":" + quote(vehicleRegNumber)
+                + ",\"parkingNumber\":" + ticket.getParkingSpot().getId()
+                + ",\"price\":" + ticket.getPrice()
+                + ",\"inTime\":" + quote(ticket.getInTime().toInstant().toString())
+                + ",\"quotedAt\":" + quote(ticket.getOutTime().toInstant().toString()) + "}");
+    }
+
+    private Response occupancy(Map<String, String> parameters) {
+        StringBuilder body = new StringBuilder("{");
+        for (ParkingType parkingType : ParkingType.values()) {
+            if (body.length() > 1) {
+                body.append(',');
+            }
+            body.append(quote(parkingType.name())).append(":{\"available\":")
+                    .append(parkingService.getAvailableSlotCount(parkingType)).append('}');
+        }
+        return new Response(200, body.append('}').toString());
+    }
+
+    private HttpHandler handler(String method, Endpoint endpoint) {
+        return exchange -> {
+            Response response;
+            try {
+                if (!method.equals(exchange.getRequestMethod())) {
+                    response = error(405, method + " required");
+                } else {
+                    response = endpoint.handle(readParameters(exchange));
+                }
+            } catch (Exception e) {
+                logger.error("Error handling " + exchange.getRequestURI(), e);
+                response = error(500, "Internal error");
+            }
+            send(exchange, response);
+        };
+    }
+
+    private static Map<String, String> readParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), parameters);
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[512];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            parseForm(new String(body.toByteArray(), StandardCharsets.UTF_8), parameters);
+        }
+        return parameters;
+    }
+
+    private static void parseForm(String form, Map<String, String> parameters) throws UnsupportedEncodingException {
+        if (isBlank(form)) {
+            return;
+        }
+        for (String pair : form.trim().split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, "{\"error\":" + quote(message) + "}");
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
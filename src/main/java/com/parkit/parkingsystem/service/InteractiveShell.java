@@ -1,12 +1,10 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.config.DataBaseConfig;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.util.Date;
 
 public class InteractiveShell {
@@ -19,11 +17,15 @@ public class InteractiveShell {
 
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        DataBaseConfig dataBaseConfig=new DataBaseConfig();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
-//        DataBaseConfig dataBaseConfig=new DataBaseConfig();
-        TicketDAO ticketDAO = new TicketDAO(dataBaseConfig);
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        ParkingBackend parkingBackend;
+        try {
+            parkingBackend = ParkingBackend.fromSystemProperties();
+        } catch (IOException e) {
+            logger.error("Unable to open the parking storage", e);
+            System.out.println("Unable to open the parking storage. Exiting from the system!");
+            return;
+        }
+        ParkingService parkingService = parkingBackend.newParkingService(inputReaderUtil);
 
         while(continueApp){
             loadMenu();
@@ -40,6 +42,7 @@ public class InteractiveShell {
                 case 3: {
                     System.out.println("Exiting from the system!");
                     continueApp = false;
+                    parkingBackend.shutdown();
                     break;
                 }
                 default: System.out.println("Unsupported option. Please enter a number corresponding to the provided menu");
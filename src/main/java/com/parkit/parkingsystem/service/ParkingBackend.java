@@ -0,0 +1,213 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.dao.LotCheckpoint;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.ParkingTransactionDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.dao.TicketWriteQueue;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedDatabase;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedJournal;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedParkingSpotRepository;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedTicketRepository;
+import com.parkit.parkingsystem.dao.embedded.FileJournal;
+import com.parkit.parkingsystem.dao.embedded.MappedJournal;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The storage the application runs on, chosen with system properties:
+ * parkit.storage=mysql (default) or embedded, parkit.embedded.journal=text (default) or mapped,
+ * parkit.embedded.file for the text journal file or the mapped journal directory,
+ * parkit.writeBehind=true to group commit the MySQL ticket writes, parkit.snapshot.file for the MySQL
+ * lot checkpoint and parkit.snapshot.intervalSeconds between checkpoints.
+ * Repository calls are timed into {@link Metrics}, logged every parkit.metrics.intervalSeconds (0 to disable).
+ * parkit.tariff.file replaces the built-in fares with a {@link Tariff}, checked for changes every
+ * parkit.tariff.reloadSeconds.
+ */
+public class ParkingBackend {
+
+    private static final Logger logger = LogManager.getLogger("ParkingBackend");
+
+    public static final String STORAGE_PROPERTY = "parkit.storage";
+    public static final String EMBEDDED_JOURNAL_PROPERTY = "parkit.embedded.journal";
+    public static final String EMBEDDED_FILE_PROPERTY = "parkit.embedded.file";
+    public static final String WRITE_BEHIND_PROPERTY = "parkit.writeBehind";
+    public static final String SNAPSHOT_FILE_PROPERTY = "parkit.snapshot.file";
+    public static final String SNAPSHOT_INTERVAL_PROPERTY = "parkit.snapshot.intervalSeconds";
+    public static final String METRICS_INTERVAL_PROPERTY = "parkit.metrics.intervalSeconds";
+    public static final String TARIFF_FILE_PROPERTY = "parkit.tariff.file";
+    public static final String TARIFF_RELOAD_PROPERTY = "parkit.tariff.reloadSeconds";
+
+    private static final String DEFAULT_EMBEDDED_FILE = "parking-data/parking.journal";
+    private static final String DEFAULT_MAPPED_JOURNAL_DIRECTORY = "parking-data/journal";
+    private static final String DEFAULT_SNAPSHOT_FILE = "parking-data/lot.snapshot";
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_SECONDS = 300;
+    private static final long DEFAULT_METRICS_INTERVAL_SECONDS = 60;
+    private static final long DEFAULT_TARIFF_RELOAD_SECONDS = 30;
+    private static final int MAPPED_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int WRITE_QUEUE_CAPACITY = 10_000;
+    private static final int WRITE_BATCH_SIZE = 500;
+    private static final long WRITE_FLUSH_INTERVAL_MILLIS = 5;
+
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final TicketRepository ticketRepository;
+    private final ParkingTransactionDAO parkingTransactionDAO;
+    private final DataBaseConfig dataBaseConfig;
+    private final TicketWriteQueue ticketWriteQueue;
+    private final EmbeddedDatabase embeddedDatabase;
+    private final LotCheckpoint lotCheckpoint;
+    private TariffLoader tariffLoader;
+
+    private ParkingBackend(ParkingSpotRepository parkingSpotRepository, TicketRepository ticketRepository,
+                           ParkingTransactionDAO parkingTransactionDAO, DataBaseConfig dataBaseConfig,
+                           TicketWriteQueue ticketWriteQueue, EmbeddedDatabase embeddedDatabase,
+                           LotCheckpoint lotCheckpoint) {
+        this.parkingSpotRepository = Metrics.instrument(ParkingSpotRepository.class, parkingSpotRepository);
+        this.ticketRepository = Metrics.instrument(TicketRepository.class, ticketRepository);
+        this.parkingTransactionDAO = parkingTransactionDAO;
+        this.dataBaseConfig = dataBaseConfig;
+        this.ticketWriteQueue = ticketWriteQueue;
+        this.embeddedDatabase = embeddedDatabase;
+        this.lotCheckpoint = lotCheckpoint;
+    }
+
+    public static ParkingBackend fromSystemProperties() throws IOException {
+        long metricsInterval = Long.getLong(METRICS_INTERVAL_PROPERTY, DEFAULT_METRICS_INTERVAL_SECONDS);
+        if (metricsInterval > 0) {
+            Metrics.startReporter(TimeUnit.SECONDS.toMillis(metricsInterval));
+        }
+        ParkingBackend parkingBackend = fromStorageProperties();
+        String tariffFile = System.getProperty(TARIFF_FILE_PROPERTY);
+        if (tariffFile != null) {
+            parkingBackend.tariffLoader = new TariffLoader(Paths.get(tariffFile), ZoneId.systemDefault());
+            parkingBackend.tariffLoader.load();
+            parkingBackend.tariffLoader.start(TimeUnit.SECONDS.toMillis(
+                    Long.getLong(TARIFF_RELOAD_PROPERTY, DEFAULT_TARIFF_RELOAD_SECONDS)));
+        }
+        return parkingBackend;
+    }
+
+    private static ParkingBackend fromStorageProperties() throws IOException {
+        if ("embedded".equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY))) {
+            EmbeddedJournal journal;
+            if ("mapped".equalsIgnoreCase(System.getProperty(EMBEDDED_JOURNAL_PROPERTY))) {
+                String directory = System.getProperty(EMBEDDED_FILE_PROPERTY, DEFAULT_MAPPED_JOURNAL_DIRECTORY);
+                journal = new MappedJournal(Paths.get(directory), MAPPED_SEGMENT_SIZE, false);
+            } else {
+                String file = System.getProperty(EMBEDDED_FILE_PROPERTY, DEFAULT_EMBEDDED_FILE);
+                journal = new FileJournal(Paths.get(file), false);
+            }
+            return embedded(EmbeddedDatabase.open(journal, EmbeddedDatabase.DEFAULT_PARKING_SPOTS));
+        }
+        return mysql(new DataBaseConfig(), Boolean.getBoolean(WRITE_BEHIND_PROPERTY));
+    }
+
+    public static ParkingBackend embedded(EmbeddedDatabase embeddedDatabase) {
+        return new ParkingBackend(new EmbeddedParkingSpotRepository(embeddedDatabase),
+                new EmbeddedTicketRepository(embeddedDatabase), null, null, null, embeddedDatabase, null);
+    }
+
+    /**
+     * Migrates the schema and restores the in-memory indexes from the lot checkpoint,
+     * or loads them from the tables when there is no usable checkpoint.
+     * @throws IOException when the schema could not be migrated, the gates are not started on a partial schema
+     */
+    public static ParkingBackend mysql(DataBaseConfig dataBaseConfig, boolean writeBehind) throws IOException {
+        if (new SchemaMigrator(dataBaseConfig).migrate() < 0) {
+            dataBaseConfig.shutdown();
+            throw new IOException("Unable to migrate the parking schema");
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
+        TicketDAO ticketDAO = new TicketDAO(dataBaseConfig);
+        LotCheckpoint lotCheckpoint = new LotCheckpoint(
+                Paths.get(System.getProperty(SNAPSHOT_FILE_PROPERTY, DEFAULT_SNAPSHOT_FILE)), parkingSpotDAO, ticketDAO);
+        if (!lotCheckpoint.restore()) {
+            parkingSpotDAO.loadAvailabilityIndex();
+            ticketDAO.loadActiveSessions();
+            ticketDAO.loadRecurringVehicles();
+        }
+        lotCheckpoint.start(TimeUnit.SECONDS.toMillis(
+                Long.getLong(SNAPSHOT_INTERVAL_PROPERTY, DEFAULT_SNAPSHOT_INTERVAL_SECONDS)));
+        if (writeBehind) {
+            // ticket writes are group committed, so gates claim spots on their own instead of one transaction per entry
+            TicketWriteQueue ticketWriteQueue = new TicketWriteQueue(dataBaseConfig, ticketDAO, WRITE_QUEUE_CAPACITY,
+                    WRITE_BATCH_SIZE, WRITE_FLUSH_INTERVAL_MILLIS);
+            ticketWriteQueue.start();
+            ticketDAO.setTicketWriteQueue(ticketWriteQueue);
+            return new ParkingBackend(parkingSpotDAO, ticketDAO, null, dataBaseConfig, ticketWriteQueue, null,
+                    lotCheckpoint);
+        }
+        return new ParkingBackend(parkingSpotDAO, ticketDAO,
+                new ParkingTransactionDAO(dataBaseConfig, parkingSpotDAO, ticketDAO), dataBaseConfig, null, null, lotCheckpoint);
+    }
+
+    public ParkingSpotRepository getParkingSpotRepository() {
+        return parkingSpotRepository;
+    }
+
+    public TicketRepository getTicketRepository() {
+        return ticketRepository;
+    }
+
+    /**
+     * @return the single-transaction gate operations, or null when the backend has none
+     */
+    public ParkingTransactionDAO getParkingTransactionDAO() {
+        return parkingTransactionDAO;
+    }
+
+    /**
+     * A service driven through {@link ParkingService#enterVehicle} and {@link ParkingService#exitVehicle} only,
+     * without console input.
+     */
+    public ParkingService newParkingService() {
+        return newParkingService(null);
+    }
+
+    public ParkingService newParkingService(InputReaderUtil inputReaderUtil) {
+        return new ParkingService(inputReaderUtil, parkingSpotRepository, ticketRepository, parkingTransactionDAO);
+    }
+
+    /**
+     * @param executor runs the repository calls, sized for the number of lanes and the connection pool
+     */
+    public AsyncParkingService newAsyncParkingService(Executor executor) {
+        return new AsyncParkingService(parkingSpotRepository, ticketRepository, parkingTransactionDAO, executor);
+    }
+
+    public void shutdown() {
+        Metrics.stopReporter();
+        if (tariffLoader != null) {
+            tariffLoader.close();
+        }
+        if (ticketWriteQueue != null) {
+            ticketWriteQueue.close();
+        }
+        if (lotCheckpoint != null) {
+            // after the write queue is drained, so the last checkpoint covers every ticket
+            lotCheckpoint.close();
+        }
+        if (dataBaseConfig != null) {
+            dataBaseConfig.shutdown();
+        }
+        if (embeddedDatabase != null) {
+            try {
+                embeddedDatabase.close();
+            } catch (IOException e) {
+                logger.error("Error while closing embedded database", e);
+            }
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.ParkingTransactionDAO;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.OpenTicket;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.Metrics;
+import com.parkit.parkingsystem.util.OperationStats;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -14,14 +20,27 @@ import java.util.Date;
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
+    private static final OperationStats enterVehicleStats = Metrics.get("ParkingService.enterVehicle");
+    private static final OperationStats exitVehicleStats = Metrics.get("ParkingService.exitVehicle");
+    private static final OperationStats quoteFareStats = Metrics.get("ParkingService.quoteFare");
     private final InputReaderUtil inputReaderUtil;
-    private final ParkingSpotDAO parkingSpotDAO;
-    private final TicketDAO ticketDAO;
+    private final ParkingSpotRepository parkingSpotDAO;
+    private final TicketRepository ticketDAO;
+    private final GateFlow gateFlow;
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, null);
+    }
+
+    /**
+     * @param parkingTransactionDAO when given, each gate operation runs as a single transaction
+     */
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotRepository parkingSpotDAO, TicketRepository ticketDAO,
+                          ParkingTransactionDAO parkingTransactionDAO){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.gateFlow = new GateFlow(parkingSpotDAO, ticketDAO, parkingTransactionDAO);
     }
 
     public void processIncomingVehicle() {
@@ -29,29 +48,7 @@ public class ParkingService {
             ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
             if (parkingSpot != null && parkingSpot.getId() > 0) {
                 String vehicleRegNumber = getVehicleRegNumber();
-                Date inTime = new Date();
-                boolean recurringVehicle = ticketDAO.isRecurringVehicle(vehicleRegNumber);
-                boolean carInside = ticketDAO.inside(vehicleRegNumber);
-                if(carInside) {
-                    System.out.println("This vehicle is already in park");
-                    return;
-                }
-                if (recurringVehicle) {
-                    System.out.println("Welcome back! As a recurring user of our parking lot, you'll benefit from a 5% discount.");
-                }
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);
-                Ticket ticket = new Ticket();
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
-                System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:" + parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + inTime);
-
+                printEntry(enterVehicle(parkingSpot.getParkingType(), vehicleRegNumber, new Date()));
             }
         }
         catch (Exception e) {
@@ -59,6 +56,51 @@ public class ParkingService {
         }
     }
 
+    /**
+     * Parks a vehicle without reading the console, for callers that already know the vehicle and the entry time.
+     */
+    public EntryResult enterVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        long start = System.nanoTime();
+        EntryResult entryResult = parkVehicle(parkingType, vehicleRegNumber, inTime);
+        enterVehicleStats.record(System.nanoTime() - start);
+        if (entryResult.getStatus() == EntryResult.Status.ERROR) {
+            enterVehicleStats.recordError();
+        }
+        return entryResult;
+    }
+
+    private EntryResult parkVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        try {
+            return gateFlow.enterVehicle(parkingType, vehicleRegNumber, inTime, GateFlow.DIRECT).join();
+        } catch (Exception e) {
+            logger.error("Unable to process incoming vehicle", e);
+            return new EntryResult(EntryResult.Status.ERROR, null, false);
+        }
+    }
+
+    private void printEntry(EntryResult entryResult) {
+        switch (entryResult.getStatus()) {
+            case ALREADY_INSIDE:
+                System.out.println("This vehicle is already in park");
+                break;
+            case PARKING_FULL:
+                System.out.println("Sorry, the last parking spot was just taken");
+                break;
+            case PARKED: {
+                Ticket ticket = entryResult.getTicket();
+                if (entryResult.isRecurringVehicle()) {
+                    System.out.println("Welcome back! As a recurring user of our parking lot, you'll benefit from a 5% discount.");
+                }
+                System.out.println("Generated Ticket and saved in DB");
+                System.out.println("Please park your vehicle in spot number:" + ticket.getParkingSpot().getId());
+                System.out.println("Recorded in-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getInTime());
+                break;
+            }
+            default:
+                System.out.println("Unable to register vehicle entry. Error occurred");
+        }
+    }
+
     private String getVehicleRegNumber() {
         System.out.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
@@ -107,27 +149,72 @@ public class ParkingService {
     public void processExitingVehicle(Date outTime) {
         try{
             String vehicleRegNumber = getVehicleRegNumber();
-            boolean carNotInside = !ticketDAO.inside(vehicleRegNumber);
-            if (carNotInside){
+            printExit(exitVehicle(vehicleRegNumber, outTime));
+        }catch(Exception e){
+            logger.error("Unable to process exiting vehicle",e);
+        }
+    }
+
+    private void printExit(ExitResult exitResult) {
+        switch (exitResult.getStatus()) {
+            case NOT_INSIDE:
                 System.out.println("This vehicle is not inside");
-                return;
-            }
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            ticket.setOutTime(outTime);
-            FareCalculatorService fareCalculatorService = new FareCalculatorService(ticketDAO);
-            fareCalculatorService.calculateFare(ticket);
-
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
+                break;
+            case EXITED: {
+                Ticket ticket = exitResult.getTicket();
                 System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
-            }else{
+                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
+                break;
+            }
+            default:
                 System.out.println("Unable to update ticket information. Error occurred");
+        }
+    }
+
+    /**
+     * Prices and closes the ticket of a vehicle without reading the console.
+     */
+    public ExitResult exitVehicle(String vehicleRegNumber, Date outTime) {
+        long start = System.nanoTime();
+        ExitResult exitResult = releaseVehicle(vehicleRegNumber, outTime);
+        exitVehicleStats.record(System.nanoTime() - start);
+        if (exitResult.getStatus() == ExitResult.Status.ERROR) {
+            exitVehicleStats.recordError();
+        }
+        return exitResult;
+    }
+
+    private ExitResult releaseVehicle(String vehicleRegNumber, Date outTime) {
+        try {
+            return gateFlow.exitVehicle(vehicleRegNumber, outTime, GateFlow.DIRECT).join();
+        } catch (Exception e) {
+            logger.error("Unable to process exiting vehicle", e);
+            return new ExitResult(ExitResult.Status.ERROR, null);
+        }
+    }
+
+    /**
+     * Prices the stay of a parked vehicle as if it left at the given time, nothing is written.
+     * Meant to be polled by kiosks: with the in-memory indexes loaded the database is not read either.
+     * @return the open ticket with the price due, or null when the vehicle is not inside
+     */
+    public Ticket quoteFare(String vehicleRegNumber, Date at) {
+        long start = System.nanoTime();
+        try {
+            OpenTicket openTicket = ticketDAO.peekOpenTicket(vehicleRegNumber);
+            if (openTicket == null) {
+                return null;
             }
-        }catch(Exception e){
-            logger.error("Unable to process exiting vehicle",e);
+            Ticket ticket = openTicket.getTicket();
+            ticket.setOutTime(at.before(ticket.getInTime()) ? ticket.getInTime() : at);
+            new FareCalculatorService(ticketDAO).calculateFare(ticket, openTicket.isRecurringVehicle());
+            return ticket;
+        } finally {
+            quoteFareStats.record(System.nanoTime() - start);
         }
     }
+
+    public int getAvailableSlotCount(ParkingType parkingType) {
+        return parkingSpotDAO.getAvailableSlotCount(parkingType);
+    }
 }
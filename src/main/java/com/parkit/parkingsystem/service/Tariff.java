@@ -0,0 +1,335 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pricing rules per parking type, compiled into flat tables when loaded. One rule per line:
+ * <pre>
+ * CAR rate 150                      # cents per hour whenever no band applies
+ * CAR band MON-FRI 08:00-19:00 250  # cents per hour inside the band, later bands win, 22:00-06:00 runs overnight
+ * CAR tier 180 80                   # from minute 180 of the stay, 80% of the rate
+ * CAR free 30                       # first minutes of the stay not charged
+ * CAR cap 2000                      # at most 2000 cents per 24 hours counted from the entry
+ * CAR loyalty 95                    # recurring vehicles pay 95% of the total
+ * </pre>
+ * Band times are wall clock times of the lot, taken at the offset of the entry time.
+ * The week is compiled to a rate per minute and its running sum, so the charge between two instants is
+ * two array lookups per tier; a capped stay costs a lookup per day, and a week of lookups for any run of full weeks.
+ * A compiled tariff is immutable and can be swapped while gates price with the previous one.
+ */
+public final class Tariff {
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+    private static final long MILLIS_PER_WEEK = 7 * MILLIS_PER_DAY;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    // 1970-01-01 was a Thursday, shifting by three days puts offset 0 on a Monday
+    private static final long EPOCH_TO_MONDAY = 3 * MILLIS_PER_DAY;
+    private static final String[] DAYS = {"MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN"};
+
+    private final ZoneId zoneId;
+    private final Rules[] rules = new Rules[ParkingType.values().length];
+
+    private Tariff(ZoneId zoneId, Map<ParkingType, Rules> rulesByType) {
+        this.zoneId = zoneId;
+        rulesByType.forEach((parkingType, typeRules) -> rules[parkingType.ordinal()] = typeRules);
+    }
+
+    /**
+     * The rules FareCalculatorService has always applied: the hourly rate of {@link Fare} all week,
+     * the first half hour free and 5% off for recurring vehicles.
+     */
+    public static Tariff legacy(ZoneId zoneId) {
+        String definition = "CAR rate " + Math.round(Fare.CAR_RATE_PER_HOUR * 100) + "\n"
+                + "CAR free 30\nCAR loyalty 95\n"
+                + "BIKE rate " + Math.round(Fare.BIKE_RATE_PER_HOUR * 100) + "\n"
+                + "BIKE free 30\nBIKE loyalty 95\n";
+        try {
+            return compile(new StringReader(definition), zoneId);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException on the first malformed line, or when a parking type has no rate
+     */
+    public static Tariff compile(Reader definition, ZoneId zoneId) throws IOException {
+        Map<ParkingType, RulesBuilder> builders = new EnumMap<>(ParkingType.class);
+        BufferedReader reader = definition instanceof BufferedReader
+                ? (BufferedReader) definition : new BufferedReader(definition);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String rule = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (rule.isEmpty()) {
+                continue;
+            }
+            try {
+                String[] fields = rule.split("\\s+");
+                if (fields.length < 3) {
+                    throw new IllegalArgumentException("Expected a parking type, a rule and its values");
+                }
+                builders.computeIfAbsent(ParkingType.valueOf(fields[0]), parkingType -> new RulesBuilder())
+                        .add(fields);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid tariff rule at line " + lineNumber + ": " + line, e);
+            }
+        }
+        // a type left out would make every exit of its vehicles fail once the tariff is installed
+        for (ParkingType parkingType : ParkingType.values()) {
+            if (!builders.containsKey(parkingType)) {
+                throw new IllegalArgumentException("No rate for " + parkingType);
+            }
+        }
+        Map<ParkingType, Rules> rulesByType = new EnumMap<>(ParkingType.class);
+        builders.forEach((parkingType, builder) -> rulesByType.put(parkingType, builder.compile(parkingType)));
+        return new Tariff(zoneId, rulesByType);
+    }
+
+    public long priceCents(ParkingType parkingType, long inTimeMillis, long outTimeMillis, boolean recurringVehicle) {
+        if (outTimeMillis < inTimeMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect:" + outTimeMillis);
+        }
+        Rules typeRules = rules[parkingType.ordinal()];
+        if (typeRules == null) {
+            throw new IllegalArgumentException("No tariff for " + parkingType);
+        }
+        int offsetSeconds = zoneId.getRules().getOffset(Instant.ofEpochMilli(inTimeMillis)).getTotalSeconds();
+        long entryInWeek = Math.floorMod(inTimeMillis + offsetSeconds * 1000L + EPOCH_TO_MONDAY, MILLIS_PER_WEEK);
+        return typeRules.priceCents(entryInWeek, outTimeMillis - inTimeMillis, recurringVehicle);
+    }
+
+    public ZoneId getZoneId() {
+        return zoneId;
+    }
+
+    private static final class Rules {
+        private final int[] minuteRate;
+        // runningRate[m] is the sum of the rates of the minutes before m
+        private final long[] runningRate;
+        private final long[] tierStartMillis;
+        private final int[] tierPercent;
+        private final long freeMillis;
+        // in the unit of the charges: cents per hour times milliseconds times percent
+        private final long capUnits;
+        private final int loyaltyPercent;
+
+        private Rules(int[] minuteRate, long[] tierStartMillis, int[] tierPercent, long freeMillis, long capCents,
+                      int loyaltyPercent) {
+            this.minuteRate = minuteRate;
+            this.runningRate = new long[MINUTES_PER_WEEK + 1];
+            for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+                runningRate[minute + 1] = runningRate[minute] + minuteRate[minute];
+            }
+            this.tierStartMillis = tierStartMillis;
+            this.tierPercent = tierPercent;
+            this.freeMillis = freeMillis;
+            this.capUnits = capCents * MILLIS_PER_HOUR * 100;
+            this.loyaltyPercent = loyaltyPercent;
+        }
+
+        /**
+         * @return the rate integrated from the start of the week to the given offset, which may be past the week
+         */
+        private long rateUntil(long millisInWeeks) {
+            long weeks = millisInWeeks / MILLIS_PER_WEEK;
+            long millisInWeek = millisInWeeks % MILLIS_PER_WEEK;
+            int minute = (int) (millisInWeek / MILLIS_PER_MINUTE);
+            return weeks * runningRate[MINUTES_PER_WEEK] * MILLIS_PER_MINUTE
+                    + runningRate[minute] * MILLIS_PER_MINUTE
+                    + minuteRate[minute] * (millisInWeek % MILLIS_PER_MINUTE);
+        }
+
+        /**
+         * @return the charge between two times of the stay, counted from the entry, with the tier of each part
+         */
+        private long charge(long entryInWeek, long from, long to) {
+            long units = 0;
+            for (int tier = 0; tier < tierStartMillis.length; tier++) {
+                long tierEnd = tier + 1 < tierStartMillis.length ? tierStartMillis[tier + 1] : Long.MAX_VALUE;
+                long start = Math.max(from, tierStartMillis[tier]);
+                long end = Math.min(to, tierEnd);
+                if (end > start) {
+                    units += (rateUntil(entryInWeek + end) - rateUntil(entryInWeek + start)) * tierPercent[tier];
+                }
+            }
+            return units;
+        }
+
+        private long cappedCharge(long entryInWeek, long dayStart, long dayEnd) {
+            long from = Math.max(dayStart, freeMillis);
+            return dayEnd > from ? Math.min(capUnits, charge(entryInWeek, from, dayEnd)) : 0;
+        }
+
+        private long priceCents(long entryInWeek, long stayMillis, boolean recurringVehicle) {
+            if (stayMillis <= freeMillis) {
+                return 0;
+            }
+            long units;
+            if (capUnits <= 0) {
+                units = charge(entryInWeek, freeMillis, stayMillis);
+            } else {
+                units = 0;
+                // once free time and tiers are behind, the charge of a day only depends on its weekday and time
+                long steadyFrom = Math.max(freeMillis, tierStartMillis[tierStartMillis.length - 1]);
+                long dayStart = 0;
+                while (dayStart < stayMillis) {
+                    if (dayStart >= steadyFrom && stayMillis - dayStart >= 2 * MILLIS_PER_WEEK) {
+                        long weekUnits = 0;
+                        for (int day = 0; day < 7; day++) {
+                            long start = dayStart + day * MILLIS_PER_DAY;
+                            weekUnits += cappedCharge(entryInWeek, start, start + MILLIS_PER_DAY);
+                        }
+                        long weeks = (stayMillis - dayStart) / MILLIS_PER_WEEK - 1;
+                        units += weekUnits * weeks;
+                        dayStart += weeks * MILLIS_PER_WEEK;
+                    }
+                    units += cappedCharge(entryInWeek, dayStart, Math.min(stayMillis, dayStart + MILLIS_PER_DAY));
+                    dayStart += MILLIS_PER_DAY;
+                }
+            }
+            long numerator = Math.multiplyExact(units, recurringVehicle ? loyaltyPercent : 100);
+            long denominator = MILLIS_PER_HOUR * 100 * 100;
+            return (numerator + denominator / 2) / denominator;
+        }
+    }
+
+    private static final class RulesBuilder {
+        private Integer rate;
+        private final List<int[]> bands = new ArrayList<>();
+        private final TreeMap<Long, Integer> tiers = new TreeMap<>();
+        private long freeMillis;
+        private long capCents;
+        private int loyaltyPercent = 100;
+
+        private void add(String[] fields) {
+            switch (fields[1]) {
+                case "rate":
+                    rate = nonNegative(fields[2]);
+                    break;
+                case "band": {
+                    if (fields.length < 5) {
+                        throw new IllegalArgumentException("Expected days, hours and a rate");
+                    }
+                    int[] days = parseDays(fields[2]);
+                    String[] hours = fields[3].split("-");
+                    if (hours.length != 2) {
+                        throw new IllegalArgumentException("Expected hours as HH:mm-HH:mm");
+                    }
+                    int start = parseMinuteOfDay(hours[0]);
+                    int end = parseMinuteOfDay(hours[1]);
+                    int length = end > start ? end - start : end + MINUTES_PER_DAY - start;
+                    int bandRate = nonNegative(fields[4]);
+                    for (int day : days) {
+                        bands.add(new int[]{day * MINUTES_PER_DAY + start, length, bandRate});
+                    }
+                    break;
+                }
+                case "tier":
+                    if (fields.length < 4) {
+                        throw new IllegalArgumentException("Expected the first minute of the tier and its percent");
+                    }
+                    tiers.put(nonNegative(fields[2]) * MILLIS_PER_MINUTE, nonNegative(fields[3]));
+                    break;
+                case "free":
+                    freeMillis = nonNegative(fields[2]) * MILLIS_PER_MINUTE;
+                    break;
+                case "cap":
+                    capCents = nonNegative(fields[2]);
+                    break;
+                case "loyalty":
+                    loyaltyPercent = nonNegative(fields[2]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown rule " + fields[1]);
+            }
+        }
+
+        private Rules compile(ParkingType parkingType) {
+            if (rate == null) {
+                throw new IllegalArgumentException("No rate for " + parkingType);
+            }
+            int[] minuteRate = new int[MINUTES_PER_WEEK];
+            Arrays.fill(minuteRate, rate);
+            for (int[] band : bands) {
+                for (int minute = 0; minute < band[1]; minute++) {
+                    minuteRate[(band[0] + minute) % MINUTES_PER_WEEK] = band[2];
+                }
+            }
+            tiers.putIfAbsent(0L, 100);
+            long[] tierStartMillis = new long[tiers.size()];
+            int[] tierPercent = new int[tiers.size()];
+            int tier = 0;
+            for (Map.Entry<Long, Integer> entry : tiers.entrySet()) {
+                tierStartMillis[tier] = entry.getKey();
+                tierPercent[tier++] = entry.getValue();
+            }
+            return new Rules(minuteRate, tierStartMillis, tierPercent, freeMillis, capCents, loyaltyPercent);
+        }
+
+        private static int nonNegative(String value) {
+            int number = Integer.parseInt(value);
+            if (number < 0) {
+                throw new IllegalArgumentException("Negative value " + value);
+            }
+            return number;
+        }
+
+        private static int parseMinuteOfDay(String time) {
+            String[] parts = time.split(":");
+            int hours = Integer.parseInt(parts[0]);
+            int minutes = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            if (hours < 0 || minutes < 0 || minutes > 59 || hours * 60 + minutes > MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("Invalid time " + time);
+            }
+            return hours * 60 + minutes;
+        }
+
+        /**
+         * @param days MON-FRI, SAT, FRI-MON or MON,WED,FRI, Monday being 0
+         */
+        private static int[] parseDays(String days) {
+            List<Integer> parsed = new ArrayList<>();
+            for (String part : days.split(",")) {
+                String[] range = part.split("-");
+                int first = parseDay(range[0]);
+                int last = range.length > 1 ? parseDay(range[1]) : first;
+                for (int day = first; ; day = (day + 1) % 7) {
+                    parsed.add(day);
+                    if (day == last) {
+                        break;
+                    }
+                }
+            }
+            return parsed.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private static int parseDay(String day) {
+            for (int index = 0; index < DAYS.length; index++) {
+                if (DAYS[index].equalsIgnoreCase(day)) {
+                    return index;
+                }
+            }
+            throw new IllegalArgumentException("Unknown day " + day);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles a tariff file, see {@link Tariff} for the format, and installs it with
+ * {@link FareCalculatorService#setTariff}. Once started, the file is compiled again whenever it changes;
+ * a file that does not compile is reported and the running tariff stays in place.
+ */
+public class TariffLoader {
+
+    private static final Logger logger = LogManager.getLogger("TariffLoader");
+
+    private final Path tariffFile;
+    private final ZoneId zoneId;
+    private FileTime loadedVersion;
+    private ScheduledExecutorService scheduler;
+
+    public TariffLoader(Path tariffFile, ZoneId zoneId) {
+        this.tariffFile = tariffFile;
+        this.zoneId = zoneId;
+    }
+
+    /**
+     * @return false if the file could not be read or compiled
+     */
+    public synchronized boolean load() {
+        try {
+            FileTime version = Files.getLastModifiedTime(tariffFile);
+            Tariff tariff;
+            try (Reader reader = Files.newBufferedReader(tariffFile, StandardCharsets.UTF_8)) {
+                tariff = Tariff.compile(reader, zoneId);
+            }
+            FareCalculatorService.setTariff(tariff);
+            loadedVersion = version;
+            logger.info("Loaded tariff " + tariffFile);
+            return true;
+        } catch (Exception e) {
+            logger.error("Unable to load tariff " + tariffFile + ", keeping the current one", e);
+            return false;
+        }
+    }
+
+    private synchronized void reloadIfChanged() {
+        try {
+            FileTime version = Files.getLastModifiedTime(tariffFile);
+            if (!version.equals(loadedVersion)) {
+                // remembered even if it does not compile, so a broken file is reported once
+                loadedVersion = version;
+                load();
+            }
+        } catch (Exception e) {
+            logger.error("Unable to check tariff " + tariffFile, e);
+        }
+    }
+
+    public void start(long intervalMillis) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tariff-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reloadIfChanged, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Prices closed tickets again with the current fare rules, after a tariff change or for a billing dispute.
+ * The id range is split into slices priced in parallel on a fork-join pool; each slice streams its tickets
+ * by keyset pages, resolves the loyalty status of a whole page in one query and writes the changed prices
+ * of the page as one JDBC batch. Every worker holds a connection while it reads, so the pool parallelism
+ * should stay below the size of the connection pool.
+ */
+public class TicketRerating {
+
+    private static final Logger logger = LogManager.getLogger("TicketRerating");
+
+    private final TicketDAO ticketDAO;
+    private final ForkJoinPool forkJoinPool;
+    private final int pageSize;
+    private final int sliceSize;
+    private final boolean writePrices;
+
+    /**
+     * @param sliceSize ids priced by one task, larger ranges are split in two
+     * @param writePrices false for a dry run that only reports the difference
+     */
+    public TicketRerating(TicketDAO ticketDAO, ForkJoinPool forkJoinPool, int pageSize, int sliceSize,
+                          boolean writePrices) {
+        this.ticketDAO = ticketDAO;
+        this.forkJoinPool = forkJoinPool;
+        this.pageSize = pageSize;
+        this.sliceSize = sliceSize;
+        this.writePrices = writePrices;
+    }
+
+    /**
+     * @return the report of every ticket, or null if the last ticket id could not be read
+     */
+    public Report rerateAll() {
+        int lastTicketId = ticketDAO.getLastTicketId();
+        return lastTicketId < 0 ? null : rerate(0, lastTicketId);
+    }
+
+    /**
+     * Prices the closed tickets with an id in (afterId, lastId].
+     */
+    public Report rerate(int afterId, int lastId) {
+        long start = System.nanoTime();
+        Report report = forkJoinPool.invoke(new RangeTask(afterId, lastId));
+        report.elapsedNanos = System.nanoTime() - start;
+        logger.info("Re-rated tickets " + afterId + " to " + lastId + ": " + report);
+        return report;
+    }
+
+    private Report rerateSlice(int afterId, int lastId) {
+        Report report = new Report();
+        int cursor = afterId;
+        while (cursor < lastId) {
+            List<Ticket> page = ticketDAO.getClosedTicketPage(cursor, lastId, pageSize);
+            if (page == null) {
+                report.failedPages++;
+                return report;
+            }
+            if (page.isEmpty()) {
+                break;
+            }
+            int pageLastId = page.get(page.size() - 1).getId();
+            Map<String, Date> firstExitTimes = ticketDAO.getFirstExitTimes(cursor, pageLastId);
+            if (firstExitTimes == null) {
+                report.failedPages++;
+                return report;
+            }
+            List<Ticket> changed = new ArrayList<>();
+            for (Ticket ticket : page) {
+                Date firstExit = firstExitTimes.get(ticket.getVehicleRegNumber());
+                boolean recurringVehicle = firstExit != null && firstExit.getTime() < ticket.getOutTime().getTime();
+                long oldCents = Math.round(ticket.getPrice() * 100);
+                long newCents = FareCalculatorService.priceCents(ticket.getParkingSpot().getParkingType(),
+                        ticket.getInTime().getTime(), ticket.getOutTime().getTime(), recurringVehicle);
+                report.tickets++;
+                report.oldRevenueCents += oldCents;
+                report.newRevenueCents += newCents;
+                if (newCents != oldCents) {
+                    ticket.setPrice(newCents / 100.0);
+                    changed.add(ticket);
+                }
+            }
+            report.changed += changed.size();
+            if (writePrices && !changed.isEmpty()) {
+                if (ticketDAO.updatePrices(changed)) {
+                    report.written += changed.size();
+                } else {
+                    report.failedPages++;
+                }
+            }
+            cursor = pageLastId;
+        }
+        return report;
+    }
+
+    private final class RangeTask extends RecursiveTask<Report> {
+        private final int afterId;
+        private final int lastId;
+
+        private RangeTask(int afterId, int lastId) {
+            this.afterId = afterId;
+            this.lastId = lastId;
+        }
+
+        @Override
+        protected Report compute() {
+            if (lastId - afterId <= sliceSize) {
+                return rerateSlice(afterId, lastId);
+            }
+            int middle = afterId + (lastId - afterId) / 2;
+            RangeTask upper = new RangeTask(middle, lastId);
+            upper.fork();
+            Report report = new RangeTask(afterId, middle).compute();
+            report.add(upper.join());
+            return report;
+        }
+    }
+
+    public static class Report {
+        private long tickets;
+        private long changed;
+        private long written;
+        private long failedPages;
+        private long oldRevenueCents;
+        private long newRevenueCents;
+        private long elapsedNanos;
+
+        private void add(Report other) {
+            tickets += other.tickets;
+            changed += other.changed;
+            written += other.written;
+            failedPages += other.failedPages;
+            oldRevenueCents += other.oldRevenueCents;
+            newRevenueCents += other.newRevenueCents;
+        }
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        public long getChanged() {
+            return changed;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getFailedPages() {
+            return failedPages;
+        }
+
+        public long getOldRevenueCents() {
+            return oldRevenueCents;
+        }
+
+        public long getNewRevenueCents() {
+            return newRevenueCents;
+        }
+
+        public long getRevenueDifferenceCents() {
+            return newRevenueCents - oldRevenueCents;
+        }
+
+        public double getTicketsPerSecond() {
+            return elapsedNanos == 0 ? 0 : tickets * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tickets, %d changed, %d written, %d failed pages, revenue %.2f -> %.2f (%+.2f),"
+                            + " %.0f tickets/s", tickets, changed, written, failedPages, oldRevenueCents / 100.0,
+                    newRevenueCents / 100.0, getRevenueDifferenceCents() / 100.0, getTicketsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide registry of {@link OperationStats}, named "Class.method".
+ * Each operation is published as the MBean com.parkit.parkingsystem:type=Operation,name=&lt;operation&gt;
+ * and can be dumped to the log periodically.
+ */
+public final class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    private static final String DOMAIN = "com.parkit.parkingsystem";
+    private static final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    public static OperationStats get(String operation) {
+        OperationStats stats = operations.get(operation);
+        return stats != null ? stats : operations.computeIfAbsent(operation, Metrics::register);
+    }
+
+    public static void recordError(String operation) {
+        get(operation).recordError();
+    }
+
+    private static OperationStats register(String operation) {
+        OperationStats stats = new OperationStats(operation);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":type=Operation,name=" + ObjectName.quote(operation));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(stats, name);
+            }
+        } catch (Exception e) {
+            logger.error("Unable to publish metrics of " + operation + " over JMX", e);
+        }
+        return stats;
+    }
+
+    /**
+     * Wraps an implementation of an interface so the latency of every call is recorded under
+     * "ImplementationClass.method", and every exception it throws as an error.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T instrument(Class<T> type, T target) {
+        String prefix = target.getClass().getSimpleName() + ".";
+        Map<Method, OperationStats> methodStats = new ConcurrentHashMap<>();
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            OperationStats stats = methodStats.computeIfAbsent(method, m -> get(prefix + m.getName()));
+            long start = System.nanoTime();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                stats.recordError();
+                throw e.getCause();
+            } finally {
+                stats.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * @return one line per operation called so far, sorted by name
+     */
+    public static String dump() {
+        StringBuilder dump = new StringBuilder();
+        for (OperationStats stats : new TreeMap<>(operations).values()) {
+            if (stats.getCount() > 0 || stats.getErrorCount() > 0) {
+                dump.append(System.lineSeparator()).append(stats);
+            }
+        }
+        return dump.toString();
+    }
+
+    public static synchronized void startReporter(long intervalMillis) {
+        stopReporter();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            String dump = dump();
+            if (!dump.isEmpty()) {
+                logger.info("Operation metrics:" + dump);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+}
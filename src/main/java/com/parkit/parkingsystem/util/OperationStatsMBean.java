@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.util;
+
+/**
+ * JMX view of an {@link OperationStats}. Latencies are in microseconds.
+ */
+public interface OperationStatsMBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+
+    void reset();
+}
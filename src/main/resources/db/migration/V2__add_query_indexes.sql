@@ -0,0 +1,11 @@
+-- INSIDE, RECURRING_VEHICLE and GET_OPEN_TICKET: equality on the plate, then OUT_TIME, ordered by IN_TIME
+create index IDX_TICKET_VEHICLE_OUT_TIME on ticket(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME);
+
+-- GET_TICKET: latest ticket of a plate without a filesort
+create index IDX_TICKET_VEHICLE_IN_TIME on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+
+-- GET_OPEN_TICKETS: open tickets loaded at startup
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+
+-- GET_NEXT_PARKING_SPOT: min(PARKING_NUMBER) read from the index for a type
+create index IDX_PARKING_TYPE_AVAILABLE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
@@ -0,0 +1,17 @@
+-- One open ticket per plate, enforced by the database so two gates can never let the same vehicle in twice:
+-- OPEN_VEHICLE_REG_NUMBER is the plate while the ticket is open and NULL once it is closed, NULLs never collide
+
+-- Lots that already let a vehicle in twice would fail the unique index: the exit only ever closed the newest
+-- open ticket of a plate, so the older ones are closed here unpriced (OUT_TIME = IN_TIME, PRICE = 0)
+-- and their spots given back, unless the newest ticket holds the same spot
+update ticket t
+join (select VEHICLE_REG_NUMBER, max(ID) as LATEST_ID from ticket where OUT_TIME is NULL
+      group by VEHICLE_REG_NUMBER having count(*) > 1) d on d.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER
+join ticket latest on latest.ID = d.LATEST_ID
+join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER
+set t.OUT_TIME = t.IN_TIME, t.PRICE = 0, p.AVAILABLE = (p.PARKING_NUMBER <> latest.PARKING_NUMBER)
+where t.OUT_TIME is NULL and t.ID < d.LATEST_ID;
+
+alter table ticket add column OPEN_VEHICLE_REG_NUMBER varchar(10) generated always as (case when OUT_TIME is NULL then VEHICLE_REG_NUMBER end) stored;
+
+create unique index IDX_TICKET_OPEN_VEHICLE on ticket(OPEN_VEHICLE_REG_NUMBER);
@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingTransactionDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.AsyncParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncParkingServiceTest {
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+    @Mock
+    private TicketDAO ticketDAO;
+    @Mock
+    private ParkingTransactionDAO parkingTransactionDAO;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void entryLookupsRunInParallel() throws Exception {
+        // each lookup only returns once the other one has started
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(ticketDAO.isRecurringVehicle("ABCDEF")).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            return bothStarted.await(5, TimeUnit.SECONDS);
+        });
+        when(ticketDAO.inside("ABCDEF")).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            return !bothStarted.await(5, TimeUnit.SECONDS);
+        });
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(2);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        AsyncParkingService asyncParkingService = new AsyncParkingService(parkingSpotDAO, ticketDAO, null, executor);
+
+        EntryResult entryResult = asyncParkingService.enterVehicle(ParkingType.CAR, "ABCDEF", new Date())
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.PARKED);
+        assertThat(entryResult.isRecurringVehicle()).isTrue();
+        assertThat(entryResult.getTicket().getParkingSpot().getId()).isEqualTo(2);
+        verify(ticketDAO).saveTicket(entryResult.getTicket());
+    }
+
+    @Test
+    void vehicleAlreadyInsideIsNotParkedAgain() throws Exception {
+        when(ticketDAO.inside("ABCDEF")).thenReturn(true);
+        AsyncParkingService asyncParkingService = new AsyncParkingService(parkingSpotDAO, ticketDAO, null, executor);
+
+        EntryResult entryResult = asyncParkingService.enterVehicle(ParkingType.CAR, "ABCDEF", new Date())
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.ALREADY_INSIDE);
+        verify(parkingSpotDAO, never()).claimNextAvailableSlot(any());
+    }
+
+    @Test
+    void vehicleLetInByAnotherGateMeanwhileGivesItsSpotBack() throws Exception {
+        // not inside when checked, but the other gate's ticket was saved first
+        when(ticketDAO.inside("ABCDEF")).thenReturn(false, true);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(2);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
+        AsyncParkingService asyncParkingService = new AsyncParkingService(parkingSpotDAO, ticketDAO, null, executor);
+
+        EntryResult entryResult = asyncParkingService.enterVehicle(ParkingType.CAR, "ABCDEF", new Date())
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.ALREADY_INSIDE);
+        verify(parkingSpotDAO).updateParking(argThat(spot -> spot.getId() == 2 && spot.isAvailable()));
+    }
+
+    @Test
+    void failedLookupGivesAnErrorResult() throws Exception {
+        when(ticketDAO.inside("ABCDEF")).thenThrow(new IllegalStateException("connection refused"));
+        AsyncParkingService asyncParkingService = new AsyncParkingService(parkingSpotDAO, ticketDAO, null, executor);
+
+        EntryResult entryResult = asyncParkingService.enterVehicle(ParkingType.CAR, "ABCDEF", new Date())
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.ERROR);
+    }
+
+    @Test
+    void exitClosesTheTicketInOneTransaction() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(System.currentTimeMillis() - 60 * 60 * 1000));
+        when(ticketDAO.getOpenTicket("ABCDEF")).thenReturn(new OpenTicket(ticket, false));
+        when(parkingTransactionDAO.closeTicket(ticket)).thenReturn(true);
+        AsyncParkingService asyncParkingService = new AsyncParkingService(parkingSpotDAO, ticketDAO,
+                parkingTransactionDAO, executor);
+
+        ExitResult exitResult = asyncParkingService.exitVehicle("ABCDEF", new Date()).get(5, TimeUnit.SECONDS);
+
+        assertThat(exitResult.getStatus()).isEqualTo(ExitResult.Status.EXITED);
+        assertThat(exitResult.getTicket().getPrice()).isEqualTo(0.75);
+    }
+
+    @Test
+    void exitOfAnAbsentVehicle() throws Exception {
+        AsyncParkingService asyncParkingService = new AsyncParkingService(parkingSpotDAO, ticketDAO, null, executor);
+
+        ExitResult exitResult = asyncParkingService.exitVehicle("NOBODY", new Date()).get(5, TimeUnit.SECONDS);
+
+        assertThat(exitResult.getStatus()).isEqualTo(ExitResult.Status.NOT_INSIDE);
+        verify(parkingSpotDAO, never()).updateParking(any());
+    }
+}
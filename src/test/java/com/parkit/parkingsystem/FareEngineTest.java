@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.FareEngine;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FareEngineTest {
+
+    private static final long IN_TIME = 1_700_000_000_000L;
+
+    /**
+     * The double based computation FareCalculatorService used before the fare engine, kept as the reference.
+     */
+    private static long legacyPriceCents(ParkingType parkingType, long inTime, long outTime, boolean recurringVehicle) {
+        double discount = recurringVehicle ? 0.95 : 1;
+        double duration = (double) (outTime - inTime) / (1000 * 60 * 60);
+        duration = duration < 0.5 ? 0 : duration - 0.5;
+        double rate = parkingType == ParkingType.CAR ? Fare.CAR_RATE_PER_HOUR : Fare.BIKE_RATE_PER_HOUR;
+        return Math.round(duration * rate * discount * 100);
+    }
+
+    private static void assertSamePrice(ParkingType parkingType, long stayMillis, boolean recurringVehicle) {
+        assertThat(FareEngine.priceCents(parkingType, IN_TIME, IN_TIME + stayMillis, recurringVehicle))
+                .as("%s stay of %d ms, recurring %s", parkingType, stayMillis, recurringVehicle)
+                .isEqualTo(legacyPriceCents(parkingType, IN_TIME, IN_TIME + stayMillis, recurringVehicle));
+    }
+
+    @Test
+    void everyMillisecondOfTheFirstTwoHoursPricesLikeBefore() {
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (long stayMillis = 0; stayMillis <= TimeUnit.HOURS.toMillis(2); stayMillis++) {
+                assertSamePrice(parkingType, stayMillis, false);
+                assertSamePrice(parkingType, stayMillis, true);
+            }
+        }
+    }
+
+    @Test
+    void randomStaysPriceLikeBefore() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            ParkingType parkingType = random.nextBoolean() ? ParkingType.CAR : ParkingType.BIKE;
+            // mostly realistic stays, some of them up to a year
+            long stayMillis = i % 10 == 0
+                    ? (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(365))
+                    : (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(3));
+            assertSamePrice(parkingType, stayMillis, random.nextBoolean());
+        }
+    }
+
+    @Test
+    void outTimeBeforeInTimeIsRejected() {
+        assertThatThrownBy(() -> FareEngine.priceCents(ParkingType.CAR, IN_TIME, IN_TIME - 1, false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void pricingAllocatesNothing() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        long total = 0;
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1_000_000; i++) {
+            total += FareEngine.priceCents(ParkingType.CAR, IN_TIME, IN_TIME + 37 * i, (i & 1) == 0);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(total).isPositive();
+        // a single allocation per call would already be megabytes
+        assertThat(allocated).isLessThan(64 * 1024);
+    }
+}
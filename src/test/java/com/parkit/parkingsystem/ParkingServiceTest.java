@@ -9,7 +9,10 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingTransactionDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.OpenTicket;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.ParkingService;
@@ -46,6 +49,8 @@ public class ParkingServiceTest {
     private static ParkingSpotDAO parkingSpotDAO;
     @Mock
     private static TicketDAO ticketDAO;
+    @Mock
+    private ParkingTransactionDAO parkingTransactionDAO;
 
 
     @Nested
@@ -105,6 +110,57 @@ public class ParkingServiceTest {
 
         }
 
+        @Test
+        void processIncomingVehicleSavesTicketForClaimedSpotTest() throws Exception {
+            when(inputReaderUtil.readSelection()).thenReturn(1);
+            when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+            when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+            when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(2);
+            when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+            final ArgumentCaptor<Ticket> ticketCaptor = ArgumentCaptor.forClass(Ticket.class);
+
+            parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+            parkingService.processIncomingVehicle();
+
+            verify(ticketDAO, times(1)).saveTicket(ticketCaptor.capture());
+            verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+            assertThat(ticketCaptor.getValue().getParkingSpot().getId()).isEqualTo(2);
+            assertThat(ticketCaptor.getValue().getParkingSpot().isAvailable()).isFalse();
+        }
+
+        @Test
+        void processIncomingVehicleInASingleTransactionTest() throws Exception {
+            when(inputReaderUtil.readSelection()).thenReturn(1);
+            when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+            when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+            ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+            ticket.setVehicleRegNumber("ABCDEF");
+            ticket.setInTime(new Date());
+            when(parkingTransactionDAO.enterVehicle(any(ParkingType.class), anyString(), any(Date.class)))
+                    .thenReturn(new EntryResult(EntryResult.Status.PARKED, ticket, true));
+
+            parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, parkingTransactionDAO);
+            parkingService.processIncomingVehicle();
+
+            verify(parkingTransactionDAO, times(1)).enterVehicle(any(ParkingType.class), anyString(), any(Date.class));
+            verify(parkingSpotDAO, never()).claimNextAvailableSlot(any(ParkingType.class));
+            verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+        }
+
+        @Test
+        void processIncomingVehicleWhenSpotIsTakenByAnotherGateTest() throws Exception {
+            when(inputReaderUtil.readSelection()).thenReturn(1);
+            when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+            when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+            when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(-1);
+
+            parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+            parkingService.processIncomingVehicle();
+
+            verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+        }
+
     }
 
     @Nested
@@ -124,8 +180,7 @@ public class ParkingServiceTest {
             ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
             ticket.setVehicleRegNumber("ABCDEF");
 
-            when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
-            when(ticketDAO.inside("ABCDEF")).thenReturn(true);
+            when(ticketDAO.getOpenTicket("ABCDEF")).thenReturn(new OpenTicket(ticket, 0));
 
         }
 
@@ -174,6 +229,25 @@ public class ParkingServiceTest {
             assertThat(ticketCaptor.getValue().getOutTime()).isNotNull();
 
         }
+        @Test
+        void processExitingVehicleWithFusedReadAndWriteTest() {
+            parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+            ticket.setParkingSpot(parkingSpot);
+            Mockito.reset(ticketDAO);
+            when(ticketDAO.getOpenTicket("ABCDEF")).thenReturn(new OpenTicket(ticket, 2));
+            when(parkingTransactionDAO.closeTicket(any(Ticket.class))).thenReturn(true);
+
+            parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, parkingTransactionDAO);
+            parkingService.processExitingVehicle();
+
+            verify(parkingTransactionDAO, times(1)).closeTicket(ticket);
+            verify(ticketDAO, never()).isRecurringVehicle(anyString());
+            verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+            verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+            assertThat(ticket.getOutTime()).isNotNull();
+            assertThat(ticket.getPrice()).isEqualTo(0.71);
+        }
+
         @Test
         void processExitingVehicleUnableToUpdate() {
                 parkingSpot = new ParkingSpot(1, ParkingType.BIKE, false);
@@ -282,4 +356,21 @@ public class ParkingServiceTest {
 
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void quoteFarePricesTheOpenTicketWithoutWriting() {
+        Ticket openTicket = new Ticket();
+        openTicket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        openTicket.setVehicleRegNumber("ABCDEF");
+        openTicket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        when(ticketDAO.peekOpenTicket("ABCDEF")).thenReturn(new OpenTicket(openTicket, true));
+
+        parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        Ticket quoted = parkingService.quoteFare("ABCDEF", new Date(openTicket.getInTime().getTime() + (60 * 60 * 1000)));
+
+        assertThat(quoted.getPrice()).isEqualTo(0.71);
+        verify(ticketDAO, never()).getOpenTicket(anyString());
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+    }
+}
@@ -0,0 +1,160 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FareEngine;
+import com.parkit.parkingsystem.service.Tariff;
+import com.parkit.parkingsystem.service.TariffLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class TariffTest {
+
+    // a Monday
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 5, 6, 0, 0);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        FareCalculatorService.setTariff(null);
+    }
+
+    private static Tariff compile(String definition) throws Exception {
+        return Tariff.compile(new StringReader(definition), ZoneOffset.UTC);
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static long price(Tariff tariff, LocalDateTime in, LocalDateTime out) {
+        return tariff.priceCents(ParkingType.CAR, millis(in), millis(out), false);
+    }
+
+    @Test
+    void legacyTariffPricesLikeTheFareEngine() {
+        Tariff tariff = Tariff.legacy(ZoneOffset.UTC);
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            ParkingType parkingType = random.nextBoolean() ? ParkingType.CAR : ParkingType.BIKE;
+            boolean recurringVehicle = random.nextBoolean();
+            long inTime = millis(MONDAY) + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(30));
+            long outTime = inTime + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(3));
+            // the fare engine keeps the float rounding of exact half cents, the tariff rounds them up
+            assertThat(tariff.priceCents(parkingType, inTime, outTime, recurringVehicle))
+                    .isCloseTo(FareEngine.priceCents(parkingType, inTime, outTime, recurringVehicle), within(1L));
+        }
+        assertThat(price(tariff, MONDAY, MONDAY.plusMinutes(29))).isZero();
+        assertThat(price(tariff, MONDAY, MONDAY.plusMinutes(90))).isEqualTo(150);
+    }
+
+    @Test
+    void stayCrossingBandsPaysEachBandRate() throws Exception {
+        Tariff tariff = compile("BIKE rate 100\nCAR rate 100\nCAR band MON-FRI 08:00-19:00 300 # office hours\n");
+
+        assertThat(price(tariff, MONDAY.plusHours(7), MONDAY.plusHours(9))).isEqualTo(400);
+        assertThat(price(tariff, MONDAY.plusHours(18).plusMinutes(30), MONDAY.plusHours(20))).isEqualTo(250);
+        // Saturday has no band
+        assertThat(price(tariff, MONDAY.plusDays(5).plusHours(9), MONDAY.plusDays(5).plusHours(10))).isEqualTo(100);
+    }
+
+    @Test
+    void overnightBandRunsIntoTheNextDay() throws Exception {
+        Tariff tariff = compile("BIKE rate 100\nCAR rate 100\nCAR band SUN 22:00-06:00 40\n");
+
+        // Sunday 21:00 to Monday 07:00 of the next week: 1h at 100, 8h at 40, 1h at 100
+        LocalDateTime sunday = MONDAY.plusDays(6);
+        assertThat(price(tariff, sunday.plusHours(21), sunday.plusHours(31))).isEqualTo(520);
+    }
+
+    @Test
+    void tiersDiscountLongStays() throws Exception {
+        Tariff tariff = compile("BIKE rate 100\nCAR rate 100\nCAR tier 60 50\nCAR free 30\nCAR loyalty 90\n");
+
+        // 30 free minutes, 30 minutes at 100, 2 hours at 50
+        assertThat(price(tariff, MONDAY, MONDAY.plusHours(3))).isEqualTo(150);
+        assertThat(tariff.priceCents(ParkingType.CAR, millis(MONDAY), millis(MONDAY.plusHours(3)), true))
+                .isEqualTo(135);
+    }
+
+    @Test
+    void dailyCapLimitsEachDayOfALongStay() throws Exception {
+        Tariff tariff = compile("BIKE rate 100\nCAR rate 100\nCAR band SAT-SUN 00:00-24:00 10\nCAR cap 1000\n");
+
+        assertThat(price(tariff, MONDAY, MONDAY.plusHours(5))).isEqualTo(500);
+        assertThat(price(tariff, MONDAY, MONDAY.plusHours(30))).isEqualTo(1600);
+        // weekdays capped at 1000, weekend days at 240
+        assertThat(price(tariff, MONDAY, MONDAY.plusWeeks(8))).isEqualTo(8 * (5 * 1000 + 2 * 240));
+        assertThat(price(tariff, MONDAY, MONDAY.plusWeeks(8).plusHours(2))).isEqualTo(8 * (5 * 1000 + 2 * 240) + 200);
+    }
+
+    @Test
+    void invalidRulesAreRejectedWithTheirLine() {
+        assertThatThrownBy(() -> compile("BIKE rate 100\nCAR rate 100\nCAR band MON-XYZ 08:00-19:00 300\n"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("line 3");
+        assertThatThrownBy(() -> compile("CAR free 30\nBIKE rate 100\n"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("No rate for CAR");
+        assertThatThrownBy(() -> compile("CAR rate 100\n"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("No rate for BIKE");
+    }
+
+    @Test
+    void tariffWithoutEveryParkingTypeIsNotInstalled() throws Exception {
+        Path tariffFile = tempDir.resolve("tariff.txt");
+        Files.write(tariffFile, "CAR rate 400\nBIKE rate 100\n".getBytes(StandardCharsets.UTF_8));
+        TariffLoader tariffLoader = new TariffLoader(tariffFile, ZoneOffset.UTC);
+        assertThat(tariffLoader.load()).isTrue();
+        Tariff installed = FareCalculatorService.getTariff();
+
+        Files.write(tariffFile, "CAR rate 500\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(tariffLoader.load()).isFalse();
+        assertThat(FareCalculatorService.getTariff()).isSameAs(installed);
+        assertThat(FareCalculatorService.priceCents(ParkingType.BIKE, 0, TimeUnit.HOURS.toMillis(1), false))
+                .isEqualTo(100);
+    }
+
+    @Test
+    void loadedTariffIsUsedByEveryFareUntilReplaced() throws Exception {
+        Path tariffFile = tempDir.resolve("tariff.txt");
+        Files.write(tariffFile, "CAR rate 400\nBIKE rate 100\n".getBytes(StandardCharsets.UTF_8));
+        TariffLoader tariffLoader = new TariffLoader(tariffFile, ZoneOffset.UTC);
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date(millis(MONDAY)));
+        ticket.setOutTime(new Date(millis(MONDAY.plusHours(2))));
+        FareCalculatorService fareCalculatorService = new FareCalculatorService(null);
+
+        assertThat(tariffLoader.load()).isTrue();
+        fareCalculatorService.calculateFare(ticket, false);
+        assertThat(ticket.getPrice()).isEqualTo(8.0);
+
+        Files.write(tariffFile, "CAR rate x\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(tariffLoader.load()).isFalse();
+        fareCalculatorService.calculateFare(ticket, false);
+        assertThat(ticket.getPrice()).isEqualTo(8.0);
+
+        FareCalculatorService.setTariff(null);
+        fareCalculatorService.calculateFare(ticket, false);
+        assertThat(ticket.getPrice()).isEqualTo(2.25);
+    }
+}
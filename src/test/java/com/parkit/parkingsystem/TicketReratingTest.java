@@ -0,0 +1,168 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.Tariff;
+import com.parkit.parkingsystem.service.TicketRerating;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.StringReader;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TicketReratingTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final int TICKETS = 10_000;
+
+    @Mock
+    private TicketDAO ticketDAO;
+
+    private final TreeMap<Integer, Ticket> ticketTable = new TreeMap<>();
+    private final Map<Integer, Double> writtenPrices = new ConcurrentHashMap<>();
+    private ForkJoinPool forkJoinPool;
+
+    @BeforeEach
+    void setUp() {
+        forkJoinPool = new ForkJoinPool(4);
+        // 100 vehicles visiting one after the other, every stay two hours at the built-in rates
+        for (int id = 1; id <= TICKETS; id++) {
+            Ticket ticket = new Ticket();
+            ticket.setId(id);
+            ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, true));
+            ticket.setVehicleRegNumber("PLATE" + id % 100);
+            ticket.setInTime(new Date(START + TimeUnit.HOURS.toMillis(id)));
+            ticket.setOutTime(new Date(START + TimeUnit.HOURS.toMillis(id + 2)));
+            ticket.setPrice(id <= 100 ? 2.25 : 2.14);
+            ticketTable.put(id, ticket);
+        }
+        lenient().when(ticketDAO.getClosedTicketPage(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int afterId = invocation.getArgument(0);
+            int lastId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            List<Ticket> page = new ArrayList<>();
+            for (Ticket stored : ticketTable.subMap(afterId, false, lastId, true).values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(copy(stored));
+            }
+            return page;
+        });
+        lenient().when(ticketDAO.getFirstExitTimes(anyInt(), anyInt())).thenAnswer(invocation -> {
+            Map<String, Date> firstExitTimes = new HashMap<>();
+            for (Ticket stored : ticketTable.subMap(invocation.getArgument(0), false, invocation.getArgument(1), true).values()) {
+                String vehicleRegNumber = stored.getVehicleRegNumber();
+                for (Ticket visit : ticketTable.values()) {
+                    if (visit.getVehicleRegNumber().equals(vehicleRegNumber)) {
+                        firstExitTimes.put(vehicleRegNumber, visit.getOutTime());
+                        break;
+                    }
+                }
+            }
+            return firstExitTimes;
+        });
+        lenient().when(ticketDAO.updatePrices(anyList())).thenAnswer(invocation -> {
+            List<Ticket> changed = invocation.getArgument(0);
+            assertThat(changed.size()).isLessThanOrEqualTo(250);
+            changed.forEach(ticket -> writtenPrices.put(ticket.getId(), ticket.getPrice()));
+            return true;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        forkJoinPool.shutdownNow();
+        FareCalculatorService.setTariff(null);
+    }
+
+    private static Ticket copy(Ticket stored) {
+        Ticket ticket = new Ticket();
+        ticket.setId(stored.getId());
+        ticket.setParkingSpot(stored.getParkingSpot());
+        ticket.setVehicleRegNumber(stored.getVehicleRegNumber());
+        ticket.setInTime(stored.getInTime());
+        ticket.setOutTime(stored.getOutTime());
+        ticket.setPrice(stored.getPrice());
+        return ticket;
+    }
+
+    @Test
+    void unchangedFaresRewriteNothing() {
+        TicketRerating ticketRerating = new TicketRerating(ticketDAO, forkJoinPool, 250, 1000, true);
+
+        TicketRerating.Report report = ticketRerating.rerate(0, TICKETS);
+
+        // first visits pay 2.25, the others 5% less
+        assertThat(report.getTickets()).isEqualTo(TICKETS);
+        assertThat(report.getChanged()).isZero();
+        assertThat(report.getRevenueDifferenceCents()).isZero();
+        verify(ticketDAO, never()).updatePrices(anyList());
+    }
+
+    @Test
+    void newTariffIsWrittenInBatchesAndItsRevenueReported() throws Exception {
+        FareCalculatorService.setTariff(Tariff.compile(new StringReader("CAR rate 200\nCAR loyalty 90\nBIKE rate 100\n"),
+                ZoneOffset.UTC));
+        TicketRerating ticketRerating = new TicketRerating(ticketDAO, forkJoinPool, 250, 1000, true);
+
+        TicketRerating.Report report = ticketRerating.rerate(0, TICKETS);
+
+        // no more free half hour: 4.00 for a first visit, 3.60 for the others
+        assertThat(report.getChanged()).isEqualTo(TICKETS);
+        assertThat(report.getWritten()).isEqualTo(TICKETS);
+        assertThat(report.getFailedPages()).isZero();
+        assertThat(report.getOldRevenueCents()).isEqualTo(100 * 225 + (TICKETS - 100) * 214);
+        assertThat(report.getNewRevenueCents()).isEqualTo(100 * 400 + (TICKETS - 100) * 360);
+        assertThat(writtenPrices).hasSize(TICKETS).containsEntry(1, 4.0).containsEntry(TICKETS, 3.6);
+    }
+
+    @Test
+    void dryRunOnlyReports() throws Exception {
+        FareCalculatorService.setTariff(Tariff.compile(new StringReader("CAR rate 200\nBIKE rate 100\n"), ZoneOffset.UTC));
+        TicketRerating ticketRerating = new TicketRerating(ticketDAO, forkJoinPool, 250, 1000, false);
+
+        TicketRerating.Report report = ticketRerating.rerate(5000, TICKETS);
+
+        assertThat(report.getTickets()).isEqualTo(5000);
+        assertThat(report.getChanged()).isEqualTo(5000);
+        assertThat(report.getWritten()).isZero();
+        verify(ticketDAO, never()).updatePrices(anyList());
+    }
+
+    @Test
+    void unreadablePageIsReported() {
+        when(ticketDAO.getClosedTicketPage(anyInt(), anyInt(), anyInt())).thenReturn(null);
+        TicketRerating ticketRerating = new TicketRerating(ticketDAO, forkJoinPool, 250, 1000, true);
+
+        TicketRerating.Report report = ticketRerating.rerate(0, 3000);
+
+        assertThat(report.getTickets()).isZero();
+        assertThat(report.getFailedPages()).isPositive();
+    }
+}
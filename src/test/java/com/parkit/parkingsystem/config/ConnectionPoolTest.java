@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionPoolTest {
+
+    private List<Connection> physicalConnections;
+
+    @BeforeEach
+    void setUp() {
+        physicalConnections = new ArrayList<>();
+    }
+
+    private Connection newPhysicalConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.getAutoCommit()).thenReturn(true);
+        physicalConnections.add(connection);
+        return connection;
+    }
+
+    @Test
+    void closedConnectionIsReusedInsteadOfOpeningANewOne() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this::newPhysicalConnection, 2, 60000, 1000, 1, 0);
+
+        Connection first = pool.borrow();
+        first.close();
+        Connection second = pool.borrow();
+        second.close();
+
+        assertThat(physicalConnections).hasSize(1);
+        assertThat(pool.getCreatedCount()).isEqualTo(1);
+        assertThat(pool.getBorrowCount()).isEqualTo(2);
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        assertThat(first.isClosed()).isTrue();
+    }
+
+    @Test
+    void borrowTimesOutWhenPoolIsExhausted() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this::newPhysicalConnection, 1, 60000, 50, 1, 0);
+
+        pool.borrow();
+
+        assertThatThrownBy(pool::borrow).isInstanceOf(SQLTimeoutException.class);
+        assertThat(pool.getTimeoutCount()).isEqualTo(1);
+        assertThat(pool.getActiveCount()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidIdleConnectionIsReplacedOnBorrow() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this::newPhysicalConnection, 1, 60000, 1000, 1, 0);
+        pool.borrow().close();
+        when(physicalConnections.get(0).isValid(anyInt())).thenReturn(false);
+
+        pool.borrow();
+
+        assertThat(physicalConnections).hasSize(2);
+        assertThat(pool.getValidationFailureCount()).isEqualTo(1);
+        verify(physicalConnections.get(0)).close();
+    }
+
+    @Test
+    void expiredIdleConnectionIsEvicted() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this::newPhysicalConnection, 1, 0, 1000, 1, 0);
+        pool.borrow().close();
+        Thread.sleep(5);
+
+        pool.evictIdleConnections();
+
+        assertThat(pool.getIdleCount()).isZero();
+        assertThat(pool.getDestroyedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void uncommittedTransactionIsRolledBackOnRelease() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this::newPhysicalConnection, 1, 60000, 1000, 1, 0);
+        Connection connection = pool.borrow();
+        when(physicalConnections.get(0).getAutoCommit()).thenReturn(false);
+
+        connection.close();
+
+        verify(physicalConnections.get(0)).rollback();
+        verify(physicalConnections.get(0)).setAutoCommit(true);
+    }
+
+    @Test
+    void returnedConnectionCannotBeUsedAgain() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this::newPhysicalConnection, 1, 60000, 1000, 1, 0);
+        Connection connection = pool.borrow();
+        connection.close();
+
+        assertThatThrownBy(() -> connection.prepareStatement("select 1")).isInstanceOf(SQLException.class);
+    }
+}
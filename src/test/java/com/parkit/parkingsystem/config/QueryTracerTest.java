@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QueryTracerTest {
+
+    @Mock
+    private Connection physical;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private Statement statement;
+
+    @Test
+    void fingerprintReplacesLiterals() {
+        assertThat(QueryTracer.fingerprint("select *  from ticket\n where ID = 42 and VEHICLE_REG_NUMBER='AB''1'"))
+                .isEqualTo("select * from ticket where ID = ? and VEHICLE_REG_NUMBER=?");
+        assertThat(QueryTracer.fingerprint("update parking set available = ? where PARKING_NUMBER = ?"))
+                .isEqualTo("update parking set available = ? where PARKING_NUMBER = ?");
+    }
+
+    @Test
+    void queriesAreCountedWithTheirRows() throws Exception {
+        when(physical.prepareStatement(DBConstants.INSIDE)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        QueryTracer queryTracer = new QueryTracer(0);
+        Connection connection = queryTracer.trace(physical);
+
+        PreparedStatement ps = connection.prepareStatement(DBConstants.INSIDE);
+        ps.setString(1, "ABCDEF");
+        ResultSet rs = ps.executeQuery();
+        while (rs.next()) {
+            // read every row
+        }
+
+        verify(preparedStatement).setString(1, "ABCDEF");
+        assertThat(ps.getConnection()).isSameAs(connection);
+        QueryTracer.QueryStats queryStats = queryTracer.getStatistics().get(QueryTracer.fingerprint(DBConstants.INSIDE));
+        assertThat(queryStats.getCount()).isEqualTo(1);
+        assertThat(queryStats.getRows()).isEqualTo(2);
+        assertThat(queryTracer.report()).contains("count=1 errors=0 rows=2");
+    }
+
+    @Test
+    void updatesAndFailuresAreRecordedPerFingerprint() throws Exception {
+        when(physical.createStatement()).thenReturn(statement);
+        when(statement.executeUpdate("delete from ticket where ID = 1")).thenReturn(1);
+        when(statement.executeUpdate("delete from ticket where ID = 2")).thenThrow(new SQLException("lock wait timeout"));
+        QueryTracer queryTracer = new QueryTracer(1000);
+        Statement traced = queryTracer.trace(physical).createStatement();
+
+        assertThat(traced.executeUpdate("delete from ticket where ID = 1")).isEqualTo(1);
+        assertThatThrownBy(() -> traced.executeUpdate("delete from ticket where ID = 2"))
+                .isInstanceOf(SQLException.class);
+
+        assertThat(queryTracer.getStatistics()).hasSize(1);
+        QueryTracer.QueryStats queryStats = queryTracer.getStatistics().get("delete from ticket where ID = ?");
+        assertThat(queryStats.getCount()).isEqualTo(2);
+        assertThat(queryStats.getErrorCount()).isEqualTo(1);
+        assertThat(queryStats.getRows()).isEqualTo(1);
+    }
+}
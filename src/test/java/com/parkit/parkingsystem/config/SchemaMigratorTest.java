@@ -0,0 +1,206 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SchemaMigratorTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection con;
+    @Mock
+    private Statement statement;
+    @Mock
+    private PreparedStatement versionQuery;
+    @Mock
+    private PreparedStatement versionInsert;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private PreparedStatement lockStatement;
+    @Mock
+    private ResultSet lockResult;
+    @Mock
+    private PreparedStatement indexQuery;
+    @Mock
+    private ResultSet indexResult;
+    @Mock
+    private PreparedStatement columnQuery;
+    @Mock
+    private ResultSet columnResult;
+
+    private SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    void setUp() {
+        schemaMigrator = new SchemaMigrator(dataBaseConfig,
+                Arrays.asList("V1__create_schema.sql", "V2__add_query_indexes.sql"));
+    }
+
+    private void givenMigrationLock(boolean acquired) throws Exception {
+        when(dataBaseConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(DBConstants.ACQUIRE_MIGRATION_LOCK)).thenReturn(lockStatement);
+        when(lockStatement.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(acquired ? 1 : 0);
+        lenient().when(con.prepareStatement(DBConstants.RELEASE_MIGRATION_LOCK)).thenReturn(lockStatement);
+    }
+
+    private void givenExistingIndexes(Integer... counts) throws Exception {
+        when(con.prepareStatement(DBConstants.INDEX_EXISTS)).thenReturn(indexQuery);
+        when(indexQuery.executeQuery()).thenReturn(indexResult);
+        when(indexResult.next()).thenReturn(true);
+        when(indexResult.getInt(1)).thenReturn(counts[0], Arrays.copyOfRange(counts, 1, counts.length));
+    }
+
+    private void givenSchemaVersionTable() throws Exception {
+        givenMigrationLock(true);
+        when(con.createStatement()).thenReturn(statement);
+        when(con.prepareStatement(DBConstants.GET_SCHEMA_VERSIONS)).thenReturn(versionQuery);
+        when(versionQuery.executeQuery()).thenReturn(resultSet);
+    }
+
+    @Test
+    void onlyPendingMigrationsAreApplied() throws Exception {
+        givenSchemaVersionTable();
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt(1)).thenReturn(1);
+        givenExistingIndexes(0, 0, 0, 0);
+        when(con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION)).thenReturn(versionInsert);
+
+        assertThat(schemaMigrator.migrate()).isEqualTo(1);
+
+        verify(statement, never()).execute(startsWith("create table if not exists parking"));
+        verify(statement, times(4)).execute(startsWith("create index"));
+        verify(versionInsert).setInt(1, 2);
+        verify(versionInsert).setString(2, "add query indexes");
+        verify(indexQuery, times(3)).setString(1, "ticket");
+        verify(indexQuery).setString(2, "IDX_TICKET_VEHICLE_OUT_TIME");
+        verify(con).prepareStatement(DBConstants.RELEASE_MIGRATION_LOCK);
+        verify(dataBaseConfig).closeConnection(con);
+    }
+
+    @Test
+    void scriptInterruptedAfterItsFirstIndexIsResumed() throws Exception {
+        givenSchemaVersionTable();
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt(1)).thenReturn(1);
+        givenExistingIndexes(1, 0, 0, 0);
+        when(con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION)).thenReturn(versionInsert);
+
+        assertThat(schemaMigrator.migrate()).isEqualTo(1);
+
+        verify(statement, never()).execute(startsWith("create index IDX_TICKET_VEHICLE_OUT_TIME"));
+        verify(statement, times(3)).execute(startsWith("create index"));
+        verify(versionInsert).setInt(1, 2);
+    }
+
+    @Test
+    void columnAddedBeforeAnInterruptionIsNotAddedAgain() throws Exception {
+        schemaMigrator = new SchemaMigrator(dataBaseConfig, Arrays.asList("V3__one_open_ticket_per_vehicle.sql"));
+        givenSchemaVersionTable();
+        when(resultSet.next()).thenReturn(false);
+        givenExistingIndexes(0);
+        when(con.prepareStatement(DBConstants.COLUMN_EXISTS)).thenReturn(columnQuery);
+        when(columnQuery.executeQuery()).thenReturn(columnResult);
+        when(columnResult.next()).thenReturn(true);
+        when(columnResult.getInt(1)).thenReturn(1);
+        when(con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION)).thenReturn(versionInsert);
+
+        assertThat(schemaMigrator.migrate()).isEqualTo(1);
+
+        verify(statement, never()).execute(startsWith("alter table ticket add column"));
+        verify(statement).execute("create unique index IDX_TICKET_OPEN_VEHICLE on ticket(OPEN_VEHICLE_REG_NUMBER)");
+        verify(columnQuery).setString(2, "OPEN_VEHICLE_REG_NUMBER");
+        verify(versionInsert).setInt(1, 3);
+    }
+
+    @Test
+    void duplicateOpenTicketsAreClosedBeforeTheUniqueIndexIsCreated() throws Exception {
+        schemaMigrator = new SchemaMigrator(dataBaseConfig, Arrays.asList("V3__one_open_ticket_per_vehicle.sql"));
+        givenSchemaVersionTable();
+        when(resultSet.next()).thenReturn(false);
+        givenExistingIndexes(0);
+        when(con.prepareStatement(DBConstants.COLUMN_EXISTS)).thenReturn(columnQuery);
+        when(columnQuery.executeQuery()).thenReturn(columnResult);
+        when(columnResult.next()).thenReturn(true);
+        when(columnResult.getInt(1)).thenReturn(0);
+        when(statement.getUpdateCount()).thenReturn(2);
+        when(con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION)).thenReturn(versionInsert);
+
+        assertThat(schemaMigrator.migrate()).isEqualTo(1);
+
+        InOrder inOrder = inOrder(statement);
+        inOrder.verify(statement).execute(startsWith("update ticket t join"));
+        inOrder.verify(statement).execute(startsWith("alter table ticket add column OPEN_VEHICLE_REG_NUMBER"));
+        inOrder.verify(statement).execute(startsWith("create unique index IDX_TICKET_OPEN_VEHICLE"));
+        verify(versionInsert).setInt(1, 3);
+    }
+
+    @Test
+    void nothingIsMigratedWithoutTheLock() throws Exception {
+        givenMigrationLock(false);
+
+        assertThat(schemaMigrator.migrate()).isEqualTo(-1);
+
+        verify(con, never()).createStatement();
+        verify(con, never()).prepareStatement(DBConstants.RELEASE_MIGRATION_LOCK);
+        verify(dataBaseConfig).closeConnection(con);
+    }
+
+    @Test
+    void upToDateSchemaIsLeftUntouched() throws Exception {
+        givenSchemaVersionTable();
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 2);
+
+        assertThat(schemaMigrator.migrate()).isZero();
+
+        verify(statement, times(1)).execute(anyString());
+    }
+
+    @Test
+    void failedScriptIsNotRecorded() throws Exception {
+        givenSchemaVersionTable();
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt(1)).thenReturn(1);
+        givenExistingIndexes(0);
+        when(statement.execute(startsWith("create index"))).thenThrow(new SQLException("Duplicate key name"));
+
+        assertThat(schemaMigrator.migrate()).isEqualTo(-1);
+
+        verify(con, never()).prepareStatement(DBConstants.SAVE_SCHEMA_VERSION);
+    }
+
+    @Test
+    void scriptsAreSplitIntoStatementsWithoutComments() throws Exception {
+        assertThat(SchemaMigrator.readStatements("V2__add_query_indexes.sql"))
+                .hasSize(4)
+                .allMatch(sql -> sql.startsWith("create index") && !sql.contains(";"));
+        assertThat(SchemaMigrator.getVersion("V12__add_query_indexes.sql")).isEqualTo(12);
+    }
+}
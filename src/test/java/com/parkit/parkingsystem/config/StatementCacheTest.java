@@ -0,0 +1,119 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StatementCacheTest {
+
+    @Mock
+    private Connection physical;
+    @Mock
+    private Connection owner;
+
+    private StatementCache.Counters counters;
+    private List<PreparedStatement> preparedStatements;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        counters = new StatementCache.Counters();
+        preparedStatements = new ArrayList<>();
+        when(physical.prepareStatement(anyString(), anyInt())).thenAnswer(invocation -> {
+            PreparedStatement preparedStatement = mock(PreparedStatement.class);
+            preparedStatements.add(preparedStatement);
+            return preparedStatement;
+        });
+    }
+
+    @Test
+    void sameQueryIsPreparedOnlyOnce() throws Exception {
+        StatementCache cache = new StatementCache(8, counters);
+
+        cache.prepare(physical, owner, DBConstants.INSIDE, Statement.NO_GENERATED_KEYS).close();
+        cache.prepare(physical, owner, DBConstants.INSIDE, Statement.NO_GENERATED_KEYS).close();
+
+        verify(physical, times(1)).prepareStatement(DBConstants.INSIDE, Statement.NO_GENERATED_KEYS);
+        assertThat(counters.getHits()).isEqualTo(1);
+        assertThat(counters.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void closingTheLeaseKeepsThePhysicalStatementOpen() throws Exception {
+        StatementCache cache = new StatementCache(8, counters);
+        PreparedStatement lease = cache.prepare(physical, owner, DBConstants.INSIDE, Statement.NO_GENERATED_KEYS);
+        PreparedStatement underlying = preparedStatements.get(0);
+
+        lease.close();
+
+        assertThat(lease.isClosed()).isTrue();
+        assertThat(lease.getConnection()).isSameAs(owner);
+        verify(underlying).clearParameters();
+        verify(underlying, never()).close();
+    }
+
+    @Test
+    void unexecutedBatchIsClearedBeforeTheStatementIsLentAgain() throws Exception {
+        StatementCache cache = new StatementCache(8, counters);
+        PreparedStatement lease = cache.prepare(physical, owner, DBConstants.UPDATE_TICKET, Statement.NO_GENERATED_KEYS);
+        PreparedStatement underlying = preparedStatements.get(0);
+        lease.addBatch();
+
+        lease.close();
+        PreparedStatement nextLease = cache.prepare(physical, owner, DBConstants.UPDATE_TICKET,
+                Statement.NO_GENERATED_KEYS);
+        nextLease.executeBatch();
+
+        InOrder inOrder = inOrder(underlying);
+        inOrder.verify(underlying).addBatch();
+        inOrder.verify(underlying).clearBatch();
+        inOrder.verify(underlying).executeBatch();
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvicted() throws Exception {
+        StatementCache cache = new StatementCache(2, counters);
+
+        PreparedStatement inside = cache.prepare(physical, owner, DBConstants.INSIDE, Statement.NO_GENERATED_KEYS);
+        PreparedStatement insideStatement = preparedStatements.get(0);
+        inside.close();
+        cache.prepare(physical, owner, DBConstants.GET_TICKET, Statement.NO_GENERATED_KEYS).close();
+        cache.prepare(physical, owner, DBConstants.RECURRING_VEHICLE, Statement.NO_GENERATED_KEYS).close();
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(counters.getEvictions()).isEqualTo(1);
+        verify(insideStatement).close();
+    }
+
+    @Test
+    void statementsLentDuringABorrowAreReleasedWithTheConnection() throws Exception {
+        StatementCache cache = new StatementCache(8, counters);
+        PreparedStatement lease = cache.prepare(physical, owner, DBConstants.INSIDE, Statement.NO_GENERATED_KEYS);
+
+        cache.releaseAll();
+        cache.prepare(physical, owner, DBConstants.INSIDE, Statement.NO_GENERATED_KEYS);
+
+        assertThat(lease.isClosed()).isTrue();
+        assertThat(counters.getHits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LotCheckpointTest {
+
+    private static final long SNAPSHOT_TIME = 1_700_000_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @Mock
+    private TicketDAO ticketDAO;
+
+    private Ticket openTicket(int id, int parkingNumber, String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(new Date(1_000_000L));
+        return ticket;
+    }
+
+    private Path writeSnapshot() throws IOException {
+        Path file = tempDir.resolve("lot.snapshot");
+        new LotSnapshot(SNAPSHOT_TIME,
+                Arrays.asList(new ParkingSpot(1, ParkingType.CAR, false), new ParkingSpot(2, ParkingType.CAR, false),
+                        new ParkingSpot(3, ParkingType.CAR, true), new ParkingSpot(4, ParkingType.BIKE, true)),
+                Collections.singletonList("REGULAR")).write(file);
+        return file;
+    }
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+        LotSnapshot snapshot = LotSnapshot.read(writeSnapshot());
+
+        assertThat(snapshot.getCreatedAt()).isEqualTo(SNAPSHOT_TIME);
+        assertThat(snapshot.getParkingSpots()).containsExactly(new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, false), new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true));
+        assertThat(snapshot.getParkingSpots().get(3).getParkingType()).isEqualTo(ParkingType.BIKE);
+        assertThat(snapshot.getParkingSpots().get(2).isAvailable()).isTrue();
+        assertThat(snapshot.getRecurringVehicles()).containsExactly("REGULAR");
+    }
+
+    @Test
+    void corruptedSnapshotIsRejected() throws Exception {
+        Path file = writeSnapshot();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(20);
+            raf.write(0x7f);
+        }
+
+        assertThatThrownBy(() -> LotSnapshot.read(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void restoreTakesTheSpotsOfTheOpenTicketsAndCatchesUpOnExits() throws Exception {
+        Path file = writeSnapshot();
+        // spot 5 was added to the lot after the snapshot
+        when(parkingSpotDAO.getParkingSpots()).thenReturn(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true),
+                new ParkingSpot(2, ParkingType.CAR, false), new ParkingSpot(3, ParkingType.CAR, false),
+                new ParkingSpot(4, ParkingType.BIKE, true), new ParkingSpot(5, ParkingType.CAR, true)));
+        // ABCDEF left spot 1 after the snapshot, GHIJKL is still on spot 2, NEWCAR parked on spot 3 since
+        when(ticketDAO.getOpenTickets()).thenReturn(
+                Arrays.asList(openTicket(10, 2, "GHIJKL"), openTicket(12, 3, "NEWCAR")));
+        when(ticketDAO.getVehiclesExitedSince(new Date(SNAPSHOT_TIME - LotCheckpoint.CATCH_UP_MARGIN_MILLIS)))
+                .thenReturn(Arrays.asList("ABCDEF", "MNOPQR"));
+        LotCheckpoint lotCheckpoint = new LotCheckpoint(file, parkingSpotDAO, ticketDAO);
+
+        assertThat(lotCheckpoint.restore()).isTrue();
+
+        verify(parkingSpotDAO).restoreAvailabilityIndex(argThat(parkingSpots -> {
+            ParkingSpotIndex index = new ParkingSpotIndex(parkingSpots);
+            return index.isAvailable(1) && !index.isAvailable(2) && !index.isAvailable(3) && index.isAvailable(4)
+                    && index.isAvailable(5) && index.countAvailable(ParkingType.CAR) == 2
+                    && index.countAvailable(ParkingType.BIKE) == 1;
+        }));
+        verify(ticketDAO).restoreIndexes(argThat(tickets -> tickets.size() == 2),
+                argThat(plates -> plates.size() == 3
+                        && plates.containsAll(Arrays.asList("REGULAR", "ABCDEF", "MNOPQR"))));
+    }
+
+    @Test
+    void restoreWithoutSnapshotFallsBackToFullLoad() {
+        LotCheckpoint lotCheckpoint = new LotCheckpoint(tempDir.resolve("missing"), parkingSpotDAO, ticketDAO);
+
+        assertThat(lotCheckpoint.restore()).isFalse();
+
+        verify(ticketDAO, never()).getVehiclesExitedSince(any(Date.class));
+    }
+
+    @Test
+    void checkpointIsWrittenFromTheIndexes() throws Exception {
+        Path file = tempDir.resolve("lot.snapshot");
+        when(parkingSpotDAO.getParkingSpotIndex()).thenReturn(new ParkingSpotIndex(
+                Arrays.asList(new ParkingSpot(1, ParkingType.CAR, false), new ParkingSpot(2, ParkingType.CAR, true))));
+        when(ticketDAO.getRecurringVehicleIndex()).thenReturn(
+                new RecurringVehicleIndex(Collections.singletonList("REGULAR")));
+
+        assertThat(new LotCheckpoint(file, parkingSpotDAO, ticketDAO).write()).isTrue();
+
+        LotSnapshot snapshot = LotSnapshot.read(file);
+        assertThat(snapshot.getParkingSpots()).hasSize(2);
+        assertThat(snapshot.getRecurringVehicles()).containsExactly("REGULAR");
+    }
+}
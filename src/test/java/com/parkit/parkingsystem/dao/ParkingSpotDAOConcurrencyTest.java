@@ -0,0 +1,178 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test: N gates claim spots at the same time against an in-memory stand-in
+ * for the parking table, no spot may be handed out twice.
+ */
+class ParkingSpotDAOConcurrencyTest {
+
+    private static final int PARKING_SPOTS = 2000;
+    private static final int GATES = 16;
+
+    private AtomicBoolean[] availableSpots;
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    void setUp() {
+        availableSpots = new AtomicBoolean[PARKING_SPOTS + 1];
+        for (int number = 1; number <= PARKING_SPOTS; number++) {
+            availableSpots[number] = new AtomicBoolean(true);
+        }
+        parkingSpotDAO = new ParkingSpotDAO(new DataBaseConfig() {
+            @Override
+            public Connection getConnection() {
+                return parkingTableConnection();
+            }
+        });
+    }
+
+    @Test
+    void concurrentGatesNeverShareASpotWithTheAvailabilityIndex() throws Exception {
+        parkingSpotDAO.loadAvailabilityIndex();
+
+        List<Integer> claimed = claimFromAllGates();
+
+        assertThat(new HashSet<>(claimed)).hasSize(claimed.size());
+        assertThat(claimed).hasSize(PARKING_SPOTS);
+    }
+
+    @Test
+    void concurrentGatesNeverShareASpotWithoutTheAvailabilityIndex() throws Exception {
+        List<Integer> claimed = claimFromAllGates();
+
+        assertThat(new HashSet<>(claimed)).hasSize(claimed.size());
+        assertThat(claimed).hasSize(countTakenSpots());
+    }
+
+    @Test
+    void spotsTakenOutsideThisProcessAreSkipped() throws Exception {
+        parkingSpotDAO.loadAvailabilityIndex();
+        availableSpots[1].set(false);
+        availableSpots[2].set(false);
+
+        assertThat(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).isEqualTo(3);
+    }
+
+    private List<Integer> claimFromAllGates() throws Exception {
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        try {
+            for (int gate = 0; gate < GATES; gate++) {
+                results.add(gates.submit((Callable<List<Integer>>) () -> {
+                    List<Integer> claimedByGate = new ArrayList<>();
+                    start.await();
+                    int parkingNumber;
+                    while ((parkingNumber = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)) > 0) {
+                        claimedByGate.add(parkingNumber);
+                    }
+                    return claimedByGate;
+                }));
+            }
+            start.countDown();
+            List<Integer> claimed = new ArrayList<>();
+            for (Future<List<Integer>> result : results) {
+                claimed.addAll(result.get(30, TimeUnit.SECONDS));
+            }
+            return claimed;
+        } finally {
+            gates.shutdownNow();
+        }
+    }
+
+    private int countTakenSpots() {
+        int taken = 0;
+        for (int number = 1; number <= PARKING_SPOTS; number++) {
+            if (!availableSpots[number].get()) {
+                taken++;
+            }
+        }
+        return taken;
+    }
+
+    private Connection parkingTableConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        return parkingTableStatement((String) args[0]);
+                    }
+                    return null;
+                });
+    }
+
+    private PreparedStatement parkingTableStatement(String sql) {
+        int[] parkingNumber = new int[1];
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setInt":
+                            parkingNumber[0] = (Integer) args[1];
+                            return null;
+                        case "executeUpdate":
+                            if (sql.equals(DBConstants.CLAIM_PARKING_SPOT)) {
+                                return availableSpots[parkingNumber[0]].compareAndSet(true, false) ? 1 : 0;
+                            }
+                            throw new IllegalStateException("Unexpected update " + sql);
+                        case "executeQuery":
+                            return executeQuery(sql);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private ResultSet executeQuery(String sql) {
+        List<Object[]> rows = new ArrayList<>();
+        if (sql.equals(DBConstants.GET_PARKING_SPOTS)) {
+            for (int number = 1; number <= PARKING_SPOTS; number++) {
+                rows.add(new Object[]{number, availableSpots[number].get(), ParkingType.CAR.toString()});
+            }
+        } else if (sql.equals(DBConstants.GET_NEXT_PARKING_SPOT)) {
+            for (int number = 1; number <= PARKING_SPOTS; number++) {
+                if (availableSpots[number].get()) {
+                    rows.add(new Object[]{number});
+                    break;
+                }
+            }
+        } else {
+            throw new IllegalStateException("Unexpected query " + sql);
+        }
+        int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row[0] < rows.size();
+                        case "getInt":
+                        case "getBoolean":
+                        case "getString":
+                            return rows.get(row[0])[(Integer) args[0] - 1];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
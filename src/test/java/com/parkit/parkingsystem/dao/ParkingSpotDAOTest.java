@@ -17,6 +17,9 @@ import java.sql.SQLException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -93,6 +96,65 @@ class ParkingSpotDAOTest {
         assertEquals(-1, result);
     }
 
+    @Test
+    void testNextParkingSpotIsServedFromTheAvailabilityIndex() throws SQLException {
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 2);
+        when(resultSet.getBoolean(2)).thenReturn(false, true);
+        when(resultSet.getString(3)).thenReturn("CAR");
+
+        assertTrue(parkingSpotDAO.loadAvailabilityIndex());
+        int result = parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+
+        assertEquals(2, result);
+        verify(preparedStatement, times(1)).executeQuery();
+    }
+
+    @Test
+    void testClaimedSpotIsWrittenBackAndTakenOutOfTheIndex() throws SQLException {
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt(1)).thenReturn(1);
+        when(resultSet.getBoolean(2)).thenReturn(true);
+        when(resultSet.getString(3)).thenReturn("CAR");
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        parkingSpotDAO.loadAvailabilityIndex();
+
+        int result = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+
+        assertEquals(1, result);
+        assertEquals(-1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        verify(preparedStatement).setInt(1, 1);
+    }
+
+    @Test
+    void testClaimRetriesWhenSpotWasTakenByAnotherGate() throws SQLException {
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 2);
+        when(resultSet.getBoolean(2)).thenReturn(true, true);
+        when(resultSet.getString(3)).thenReturn("CAR");
+        when(preparedStatement.executeUpdate()).thenReturn(0, 1);
+        parkingSpotDAO.loadAvailabilityIndex();
+
+        int result = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+
+        assertEquals(2, result);
+        assertEquals(-1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    void testClaimReturnsMinusOneWhenLotIsFull() throws SQLException {
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        int result = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+
+        assertEquals(-1, result);
+        verify(preparedStatement, never()).executeUpdate();
+    }
+
     @Test
     void testUpdateFail() throws SQLException {
         parkingSpot = new ParkingSpot(4, ParkingType.BIKE, false);
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParkingSpotIndexTest {
+
+    private ParkingSpotIndex parkingSpotIndex;
+
+    @BeforeEach
+    void setUp() {
+        parkingSpotIndex = new ParkingSpotIndex(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true),
+                new ParkingSpot(5, ParkingType.BIKE, true)));
+    }
+
+    @Test
+    void lowestFreeSpotOfTheRequestedTypeIsReturned() {
+        assertThat(parkingSpotIndex.peekNextAvailable(ParkingType.CAR)).isEqualTo(2);
+        assertThat(parkingSpotIndex.peekNextAvailable(ParkingType.BIKE)).isEqualTo(4);
+        assertThat(parkingSpotIndex.countAvailable(ParkingType.CAR)).isEqualTo(2);
+    }
+
+    @Test
+    void claimedSpotIsNoLongerAvailable() {
+        assertThat(parkingSpotIndex.claimNextAvailable(ParkingType.CAR)).isEqualTo(2);
+        assertThat(parkingSpotIndex.claimNextAvailable(ParkingType.CAR)).isEqualTo(3);
+        assertThat(parkingSpotIndex.claimNextAvailable(ParkingType.CAR)).isEqualTo(-1);
+        assertThat(parkingSpotIndex.peekNextAvailable(ParkingType.CAR)).isEqualTo(-1);
+    }
+
+    @Test
+    void releasedSpotCanBeClaimedAgain() {
+        parkingSpotIndex.claimNextAvailable(ParkingType.BIKE);
+
+        parkingSpotIndex.setAvailable(4, true);
+
+        assertThat(parkingSpotIndex.isAvailable(4)).isTrue();
+        assertThat(parkingSpotIndex.claim(4)).isTrue();
+        assertThat(parkingSpotIndex.claim(4)).isFalse();
+    }
+
+    @Test
+    void unknownSpotIsIgnored() {
+        parkingSpotIndex.setAvailable(42, true);
+
+        assertThat(parkingSpotIndex.isAvailable(42)).isFalse();
+        assertThat(parkingSpotIndex.getParkingType(42)).isNull();
+    }
+
+    @Test
+    void largeLotIsIndexedAcrossSeveralWords() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= 10000; number++) {
+            parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, number == 9999));
+        }
+        ParkingSpotIndex largeIndex = new ParkingSpotIndex(parkingSpots);
+
+        assertThat(largeIndex.claimNextAvailable(ParkingType.CAR)).isEqualTo(9999);
+        assertThat(largeIndex.claimNextAvailable(ParkingType.CAR)).isEqualTo(-1);
+    }
+}
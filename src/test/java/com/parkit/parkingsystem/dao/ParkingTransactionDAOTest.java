@@ -0,0 +1,168 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ParkingTransactionDAOTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection con;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private ResultSet generatedKeys;
+
+    private ParkingTransactionDAO parkingTransactionDAO;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        parkingTransactionDAO = new ParkingTransactionDAO(dataBaseConfig,
+                new ParkingSpotDAO(dataBaseConfig), new TicketDAO(dataBaseConfig));
+        when(dataBaseConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
+    }
+
+    private void givenEntryTransaction() throws SQLException {
+        when(con.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_REPEATABLE_READ);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    }
+
+    @Test
+    void entryIsCommittedOnceOnASingleConnection() throws Exception {
+        givenEntryTransaction();
+        when(con.prepareStatement(anyString(), anyInt())).thenReturn(preparedStatement);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(0, 1, 3);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+        when(generatedKeys.next()).thenReturn(true);
+        when(generatedKeys.getInt(1)).thenReturn(42);
+
+        EntryResult entryResult = parkingTransactionDAO.enterVehicle(ParkingType.CAR, "ABCDEF", new Date());
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.PARKED);
+        assertThat(entryResult.isRecurringVehicle()).isTrue();
+        assertThat(entryResult.getTicket().getId()).isEqualTo(42);
+        assertThat(entryResult.getTicket().getParkingSpot().getId()).isEqualTo(3);
+        verify(dataBaseConfig, times(1)).getConnection();
+        verify(con).setAutoCommit(false);
+        verify(con, times(1)).commit();
+        verify(con).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+    }
+
+    @Test
+    void vehicleAlreadyInsideIsNotParkedAgain() throws Exception {
+        givenEntryTransaction();
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(1);
+
+        EntryResult entryResult = parkingTransactionDAO.enterVehicle(ParkingType.CAR, "ABCDEF", new Date());
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.ALREADY_INSIDE);
+        assertThat(entryResult.getTicket()).isNull();
+        verify(con, never()).commit();
+        verify(preparedStatement, never()).executeUpdate();
+    }
+
+    @Test
+    void fullParkingIsReportedWithoutWriting() throws Exception {
+        givenEntryTransaction();
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt(1)).thenReturn(0, 0);
+
+        EntryResult entryResult = parkingTransactionDAO.enterVehicle(ParkingType.BIKE, "ABCDEF", new Date());
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.PARKING_FULL);
+        verify(con, never()).commit();
+    }
+
+    @Test
+    void failedTicketInsertRollsBackTheClaimedSpot() throws Exception {
+        givenEntryTransaction();
+        when(con.prepareStatement(anyString(), anyInt())).thenReturn(preparedStatement);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(0, 0, 3);
+        when(preparedStatement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("insert failed"));
+
+        EntryResult entryResult = parkingTransactionDAO.enterVehicle(ParkingType.CAR, "ABCDEF", new Date());
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.ERROR);
+        verify(con).rollback();
+        verify(con, never()).commit();
+    }
+
+    @Test
+    void vehicleLetInByAnotherGateDuringTheTransactionIsAlreadyInside() throws Exception {
+        givenEntryTransaction();
+        when(con.prepareStatement(anyString(), anyInt())).thenReturn(preparedStatement);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(0, 1, 3);
+        when(preparedStatement.executeUpdate()).thenReturn(1).thenThrow(
+                new SQLException("Duplicate entry 'ABCDEF'", "23000", DBConstants.DUPLICATE_ENTRY_ERROR));
+
+        EntryResult entryResult = parkingTransactionDAO.enterVehicle(ParkingType.CAR, "ABCDEF", new Date());
+
+        assertThat(entryResult.getStatus()).isEqualTo(EntryResult.Status.ALREADY_INSIDE);
+        assertThat(entryResult.isRecurringVehicle()).isTrue();
+        verify(con).rollback();
+        verify(con, never()).commit();
+    }
+
+    @Test
+    void closingTicketFreesTheSpotInOneStatement() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(2);
+
+        boolean closed = parkingTransactionDAO.closeTicket(closedTicket());
+
+        assertThat(closed).isTrue();
+        verify(con).prepareStatement(DBConstants.CLOSE_TICKET_AND_FREE_SPOT);
+        verify(preparedStatement, times(1)).executeUpdate();
+        verify(preparedStatement).setInt(3, 7);
+    }
+
+    @Test
+    void closingAnAlreadyClosedTicketFails() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+
+        assertThat(parkingTransactionDAO.closeTicket(closedTicket())).isFalse();
+    }
+
+    private Ticket closedTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setId(7);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(System.currentTimeMillis() - 60 * 60 * 1000));
+        ticket.setOutTime(new Date());
+        ticket.setPrice(0.75);
+        return ticket;
+    }
+}
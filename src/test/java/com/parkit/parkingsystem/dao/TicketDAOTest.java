@@ -4,6 +4,7 @@ import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.OpenTicket;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.ParkingService;
@@ -18,11 +19,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -74,7 +82,7 @@ class TicketDAOTest {
         when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
         Connection connection = dataBaseTestConfig.getConnection();
         PreparedStatement preparedStatement = connection.prepareStatement(DBConstants.SAVE_TICKET);
-        when(preparedStatement.execute()).thenReturn(true);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
         assertNotNull(connection);
         assertNotNull(preparedStatement);
         assertTrue(ticketDAO.saveTicket(ticket));
@@ -84,10 +92,10 @@ class TicketDAOTest {
     void saveANonValidTicket() throws Exception {
         when(dataBaseTestConfig.getConnection()).thenReturn(con);
         when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
-        when(preparedStatement.execute()).thenReturn(false);
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("Data truncation"));
         Connection connection = dataBaseTestConfig.getConnection();
         PreparedStatement preparedStatement = connection.prepareStatement(DBConstants.SAVE_TICKET);
-        ticketDAO.saveTicket(ticket);
+        assertFalse(ticketDAO.saveTicket(ticket));
 
 
         assertThatThrownBy(() -> {
@@ -151,10 +159,10 @@ class TicketDAOTest {
         when(dataBaseTestConfig.getConnection()).thenReturn(con);
         when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
         Connection connection = dataBaseTestConfig.getConnection();
-        when(preparedStatement.execute()).thenReturn(false);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
 
         PreparedStatement preparedStatement = connection.prepareStatement(DBConstants.UPDATE_TICKET);
-        ticketDAO.updateTicket(ticket);
+        assertFalse(ticketDAO.updateTicket(ticket));
 
 
         assertThatThrownBy(() -> {
@@ -162,4 +170,162 @@ class TicketDAOTest {
         }).isInstanceOf(Exception.class);
     }
 
+    @Test
+    void getOpenTicketReturnsTicketWithSpotTypeAndPreviousVisits() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(4);
+        when(resultSet.getInt(2)).thenReturn(12);
+        when(resultSet.getString(5)).thenReturn("BIKE");
+        when(resultSet.getTimestamp(4)).thenReturn(new Timestamp(System.currentTimeMillis()));
+        when(resultSet.getInt(6)).thenReturn(3);
+
+        OpenTicket openTicket = ticketDAO.getOpenTicket("ABCDEF");
+
+        assertEquals(12, openTicket.getTicket().getId());
+        assertEquals(ParkingType.BIKE, openTicket.getTicket().getParkingSpot().getParkingType());
+        assertNull(openTicket.getTicket().getOutTime());
+        assertEquals(3, openTicket.getPreviousVisits());
+        assertTrue(openTicket.isRecurringVehicle());
+    }
+
+    @Test
+    void getOpenTicketReturnsNullWhenVehicleIsNotInside() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        assertNull(ticketDAO.getOpenTicket("ABCDEF"));
+    }
+
+    @Test
+    void activeSessionsAnswerInsideWithoutQueryingTheTicketTable() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt(1)).thenReturn(2);
+        when(resultSet.getInt(2)).thenReturn(5);
+        when(resultSet.getString(5)).thenReturn("CAR");
+        when(resultSet.getTimestamp(4)).thenReturn(new Timestamp(System.currentTimeMillis()));
+        when(resultSet.getString(6)).thenReturn("ABCDEF");
+
+        assertTrue(ticketDAO.loadActiveSessions());
+
+        assertTrue(ticketDAO.inside("ABCDEF"));
+        assertFalse(ticketDAO.inside("GHIJKL"));
+        assertEquals(5, ticketDAO.getTicket("ABCDEF").getId());
+        assertNull(ticketDAO.getOpenTicket("GHIJKL"));
+        verify(preparedStatement, times(1)).executeQuery();
+    }
+
+    @Test
+    void activeSessionIsRemovedOnExit() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        ticketDAO.loadActiveSessions();
+        ticket.setId(5);
+        ticket.setOutTime(null);
+        ticketDAO.registerEntry(ticket);
+
+        ticket.setOutTime(new Date());
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        assertTrue(ticketDAO.updateTicket(ticket));
+
+        assertFalse(ticketDAO.inside("ABCDEF"));
+    }
+
+    @Test
+    void secondOpenTicketOfAVehicleIsRejected() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenThrow(
+                new SQLException("Duplicate entry 'ABCDEF'", "23000", DBConstants.DUPLICATE_ENTRY_ERROR));
+        ticketDAO.restoreIndexes(Collections.emptyList(), Collections.emptyList());
+        ticket.setOutTime(null);
+
+        assertFalse(ticketDAO.saveTicket(ticket));
+        assertFalse(ticketDAO.inside("ABCDEF"));
+    }
+
+    @Test
+    void exitMatchingNoRowKeepsTheSession() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+        ticket.setId(5);
+        ticket.setOutTime(null);
+        ticketDAO.restoreIndexes(Collections.singletonList(ticket), Collections.emptyList());
+
+        ticket.setOutTime(new Date());
+
+        assertFalse(ticketDAO.updateTicket(ticket));
+        assertTrue(ticketDAO.inside("ABCDEF"));
+        assertFalse(ticketDAO.isRecurringVehicle("ABCDEF"));
+    }
+
+    @Test
+    void recurringVehiclesAreAnsweredWithoutQueryingTheTicketTable() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString(1)).thenReturn("ABCDEF");
+
+        assertTrue(ticketDAO.loadRecurringVehicles());
+
+        assertTrue(ticketDAO.isRecurringVehicle("ABCDEF"));
+        assertFalse(ticketDAO.isRecurringVehicle("GHIJKL"));
+        verify(preparedStatement, times(1)).executeQuery();
+    }
+
+    @Test
+    void vehicleBecomesRecurringOnExit() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        ticketDAO.loadRecurringVehicles();
+        assertFalse(ticketDAO.isRecurringVehicle("ABCDEF"));
+
+        ticket.setOutTime(new Date());
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        ticketDAO.updateTicket(ticket);
+
+        assertTrue(ticketDAO.isRecurringVehicle("ABCDEF"));
+    }
+
+    @Test
+    void quotedOpenTicketIsReadFromMemoryEvenBeforeItsIdIsKnown() throws Exception {
+        ticket.setOutTime(null);
+        ticketDAO.restoreIndexes(Collections.singletonList(ticket), Collections.singletonList("ABCDEF"));
+
+        OpenTicket openTicket = ticketDAO.peekOpenTicket("ABCDEF");
+
+        assertEquals(0, openTicket.getTicket().getId());
+        assertTrue(openTicket.isRecurringVehicle());
+        assertNull(ticketDAO.peekOpenTicket("GHIJKL"));
+        verify(dataBaseTestConfig, never()).getConnection();
+    }
+
+    @Test
+    void changedPricesAreWrittenAsOneBatch() throws Exception {
+        when(dataBaseTestConfig.getConnection()).thenReturn(con);
+        when(con.prepareStatement(DBConstants.UPDATE_TICKET_PRICE)).thenReturn(preparedStatement);
+        Ticket other = new Ticket();
+        other.setId(2);
+        other.setPrice(3.25);
+
+        assertTrue(ticketDAO.updatePrices(Arrays.asList(ticket, other)));
+
+        verify(preparedStatement).setDouble(1, 3.25);
+        verify(preparedStatement).setInt(2, 2);
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement).executeBatch();
+        verify(con).commit();
+    }
+
 }
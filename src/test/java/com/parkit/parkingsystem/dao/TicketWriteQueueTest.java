@@ -0,0 +1,225 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TicketWriteQueueTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection con;
+    @Mock
+    private PreparedStatement insertStatement;
+    @Mock
+    private PreparedStatement updateStatement;
+    @Mock
+    private ResultSet generatedKeys;
+
+    private TicketDAO ticketDAO;
+    private TicketWriteQueue ticketWriteQueue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lenient().when(dataBaseConfig.getConnection()).thenReturn(con);
+        ticketDAO = new TicketDAO(dataBaseConfig);
+        ticketWriteQueue = new TicketWriteQueue(dataBaseConfig, ticketDAO, 100, 3, 200);
+        ticketWriteQueue.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ticketWriteQueue.close();
+    }
+
+    private Ticket newTicket(String vehicleRegNumber, Date outTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(System.currentTimeMillis() - 3_600_000));
+        ticket.setOutTime(outTime);
+        return ticket;
+    }
+
+    @Test
+    void queuedWritesAreCommittedAsOneBatch() throws Exception {
+        when(con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)).thenReturn(insertStatement);
+        when(insertStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+        when(generatedKeys.next()).thenReturn(true, true, true);
+        when(generatedKeys.getInt(1)).thenReturn(7, 8, 9);
+        Ticket first = newTicket("ABCDEF", null);
+        Ticket second = newTicket("GHIJKL", null);
+        Ticket third = newTicket("MNOPQR", null);
+
+        CompletableFuture<Boolean> firstSaved = ticketWriteQueue.submitInsert(first);
+        ticketWriteQueue.submitInsert(second);
+        CompletableFuture<Boolean> thirdSaved = ticketWriteQueue.submitInsert(third);
+
+        assertThat(firstSaved.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(thirdSaved.get(5, TimeUnit.SECONDS)).isTrue();
+        verify(insertStatement, times(3)).addBatch();
+        verify(insertStatement, times(1)).executeBatch();
+        verify(con, times(1)).commit();
+        assertThat(first.getId()).isEqualTo(7);
+        assertThat(third.getId()).isEqualTo(9);
+    }
+
+    @Test
+    void exitOfATicketStillWithoutIdClosesItByVehicle() throws Exception {
+        when(con.prepareStatement(DBConstants.CLOSE_OPEN_TICKET)).thenReturn(updateStatement);
+        Ticket ticket = newTicket("ABCDEF", new Date());
+
+        assertThat(ticketWriteQueue.submitUpdate(ticket).get(5, TimeUnit.SECONDS)).isTrue();
+
+        verify(updateStatement).setString(3, "ABCDEF");
+        verify(updateStatement).executeBatch();
+        verify(con).commit();
+    }
+
+    @Test
+    void failedFlushIsRolledBackAndForgetsTheEntry() throws Exception {
+        when(con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)).thenReturn(insertStatement);
+        when(insertStatement.executeBatch()).thenThrow(new BatchUpdateException());
+        when(con.prepareStatement(DBConstants.GET_OPEN_TICKETS)).thenReturn(updateStatement);
+        when(updateStatement.executeQuery()).thenReturn(generatedKeys);
+        ticketDAO.loadActiveSessions();
+        ticketDAO.setTicketWriteQueue(ticketWriteQueue);
+        Ticket ticket = newTicket("ABCDEF", null);
+
+        CompletableFuture<Boolean> saved = ticketDAO.saveTicketAsync(ticket);
+
+        assertThat(saved.get(5, TimeUnit.SECONDS)).isFalse();
+        verify(con).rollback();
+        verify(con, never()).commit();
+        assertThat(ticketDAO.inside("ABCDEF")).isFalse();
+    }
+
+    @Test
+    void failedFlushIsRetriedWriteByWriteSoOnlyTheBadOneFails() throws Exception {
+        when(con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)).thenReturn(insertStatement);
+        when(insertStatement.executeBatch()).thenThrow(new BatchUpdateException())
+                .thenReturn(new int[]{1}).thenThrow(new BatchUpdateException()).thenReturn(new int[]{1});
+        when(insertStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+        when(generatedKeys.next()).thenReturn(true);
+        when(generatedKeys.getInt(1)).thenReturn(7, 9);
+        Ticket first = newTicket("ABCDEF", null);
+        Ticket third = newTicket("MNOPQR", null);
+
+        CompletableFuture<Boolean> firstSaved = ticketWriteQueue.submitInsert(first);
+        CompletableFuture<Boolean> secondSaved = ticketWriteQueue.submitInsert(newTicket("GHIJKL", null));
+        CompletableFuture<Boolean> thirdSaved = ticketWriteQueue.submitInsert(third);
+
+        assertThat(firstSaved.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(secondSaved.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(thirdSaved.get(5, TimeUnit.SECONDS)).isTrue();
+        verify(con, times(2)).rollback();
+        verify(con, times(2)).commit();
+        assertThat(first.getId()).isEqualTo(7);
+        assertThat(third.getId()).isEqualTo(9);
+    }
+
+    @Test
+    void vehicleWhoseEntryIsStillQueuedCanExit() throws Exception {
+        Ticket queued = newTicket("ABCDEF", null);
+        ticketDAO.restoreIndexes(Collections.singletonList(queued), Collections.emptyList());
+        ticketDAO.setTicketWriteQueue(ticketWriteQueue);
+
+        assertThat(ticketDAO.getOpenTicket("ABCDEF").getTicket().getId()).isZero();
+        verify(dataBaseConfig, never()).getConnection();
+    }
+
+    @Test
+    void writesSubmittedAfterCloseAreRejected() throws Exception {
+        ticketWriteQueue.close();
+
+        assertThat(ticketWriteQueue.submitInsert(newTicket("ABCDEF", null)).get()).isFalse();
+        assertThat(ticketWriteQueue.getPendingCount()).isZero();
+        verify(con, never()).prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    @Test
+    void rolledBackExitLeavesTheVehicleInsideForARetry() throws Exception {
+        when(con.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(updateStatement);
+        when(updateStatement.executeBatch()).thenThrow(new BatchUpdateException()).thenReturn(new int[]{1});
+        Ticket ticket = newTicket("ABCDEF", null);
+        ticket.setId(5);
+        ticketDAO.restoreIndexes(Collections.singletonList(ticket), Collections.emptyList());
+        ticketDAO.setTicketWriteQueue(ticketWriteQueue);
+        ticket.setOutTime(new Date());
+
+        assertThat(ticketDAO.updateTicketAsync(ticket).get(5, TimeUnit.SECONDS)).isFalse();
+
+        assertThat(ticketDAO.inside("ABCDEF")).isTrue();
+        assertThat(ticketDAO.getOpenTicket("ABCDEF").getTicket().getId()).isEqualTo(5);
+        assertThat(ticketDAO.updateTicketAsync(ticket).get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ticketDAO.inside("ABCDEF")).isFalse();
+        assertThat(ticketDAO.isRecurringVehicle("ABCDEF")).isTrue();
+    }
+
+    @Test
+    void secondQueuedEntryOfAVehicleIsRejected() throws Exception {
+        when(con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)).thenReturn(insertStatement);
+        when(insertStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+        when(generatedKeys.next()).thenReturn(true);
+        when(generatedKeys.getInt(1)).thenReturn(7);
+        ticketDAO.restoreIndexes(Collections.emptyList(), Collections.emptyList());
+        ticketDAO.setTicketWriteQueue(ticketWriteQueue);
+
+        CompletableFuture<Boolean> firstSaved = ticketDAO.saveTicketAsync(newTicket("ABCDEF", null));
+        CompletableFuture<Boolean> secondSaved = ticketDAO.saveTicketAsync(newTicket("ABCDEF", null));
+
+        assertThat(secondSaved.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(firstSaved.get(5, TimeUnit.SECONDS)).isTrue();
+        verify(insertStatement, times(1)).addBatch();
+        assertThat(ticketDAO.getOpenTicket("ABCDEF").getTicket().getId()).isEqualTo(7);
+    }
+
+    @Test
+    void writesRacingCloseAlwaysComplete() throws Exception {
+        lenient().when(con.prepareStatement(DBConstants.CLOSE_OPEN_TICKET)).thenReturn(updateStatement);
+        ExecutorService gates = Executors.newFixedThreadPool(4);
+        List<Future<CompletableFuture<Boolean>>> submitted = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            submitted.add(gates.submit(() -> ticketWriteQueue.submitUpdate(newTicket("ABCDEF", new Date()))));
+        }
+        ticketWriteQueue.close();
+        gates.shutdown();
+
+        for (Future<CompletableFuture<Boolean>> write : submitted) {
+            assertThat(write.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+        assertThat(ticketWriteQueue.getPendingCount()).isZero();
+    }
+}
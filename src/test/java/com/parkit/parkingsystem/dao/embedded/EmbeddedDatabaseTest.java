@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.dao.embedded;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedDatabaseTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedDatabase open(Path journalFile) throws IOException {
+        return EmbeddedDatabase.open(new FileJournal(journalFile, false), EmbeddedDatabase.DEFAULT_PARKING_SPOTS);
+    }
+
+    private Ticket newTicket(int parkingNumber, String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(System.currentTimeMillis() - 3_600_000));
+        return ticket;
+    }
+
+    @Test
+    void stateSurvivesAReopen() throws Exception {
+        Path journalFile = tempDir.resolve("parking.journal");
+        EmbeddedDatabase database = open(journalFile);
+        int parkingNumber = database.claimNextAvailableSlot(ParkingType.CAR);
+        Ticket ticket = newTicket(parkingNumber, "AB;12%CD");
+        ticket.setId(database.insertTicket(ticket));
+        ticket.setPrice(1.5);
+        ticket.setOutTime(new Date());
+        database.updateTicket(ticket);
+        database.insertTicket(newTicket(database.claimNextAvailableSlot(ParkingType.CAR), "AB;12%CD"));
+        database.close();
+
+        EmbeddedDatabase reopened = open(journalFile);
+
+        assertThat(reopened.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(3);
+        assertThat(reopened.getCompletedVisits("AB;12%CD")).isEqualTo(1);
+        assertThat(reopened.getOpenTicket("AB;12%CD").getId()).isEqualTo(2);
+        assertThat(reopened.getTicketCount()).isEqualTo(2);
+        assertThat(reopened.insertTicket(newTicket(3, "EFGH"))).isEqualTo(3);
+        reopened.close();
+    }
+
+    @Test
+    void secondOpenTicketOfAVehicleIsRejected() throws Exception {
+        EmbeddedDatabase database = open(tempDir.resolve("parking.journal"));
+        Ticket ticket = newTicket(1, "ABCDEF");
+        ticket.setId(database.insertTicket(ticket));
+
+        assertThat(database.insertTicket(newTicket(2, "ABCDEF"))).isEqualTo(-1);
+        assertThat(database.getOpenTicket("ABCDEF").getId()).isEqualTo(ticket.getId());
+        assertThat(database.getTicketCount()).isEqualTo(1);
+
+        ticket.setOutTime(new Date());
+        database.updateTicket(ticket);
+        assertThat(database.insertTicket(newTicket(2, "ABCDEF"))).isEqualTo(2);
+        database.close();
+    }
+
+    @Test
+    void incompleteLastRecordIsDiscarded() throws Exception {
+        Path journalFile = tempDir.resolve("parking.journal");
+        EmbeddedDatabase database = open(journalFile);
+        database.insertTicket(newTicket(database.claimNextAvailableSlot(ParkingType.CAR), "ABCDEF"));
+        database.close();
+        Files.write(journalFile, "T;2;2;CAR;GHI".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        EmbeddedDatabase reopened = open(journalFile);
+        reopened.insertTicket(newTicket(reopened.claimNextAvailableSlot(ParkingType.CAR), "GHIJKL"));
+        reopened.close();
+
+        EmbeddedDatabase recovered = open(journalFile);
+        assertThat(recovered.getTicketCount()).isEqualTo(2);
+        assertThat(recovered.getOpenTicket("GHIJKL").getParkingSpot().getId()).isEqualTo(2);
+        recovered.close();
+    }
+
+    @Test
+    void claimedSpotIsNotHandedOutTwice() throws Exception {
+        EmbeddedDatabase database = open(tempDir.resolve("parking.journal"));
+
+        assertThat(database.claimNextAvailableSlot(ParkingType.BIKE)).isEqualTo(4);
+        assertThat(database.claimNextAvailableSlot(ParkingType.BIKE)).isEqualTo(5);
+        assertThat(database.claimNextAvailableSlot(ParkingType.BIKE)).isEqualTo(-1);
+        assertThat(database.setAvailable(4, true)).isTrue();
+        assertThat(database.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(4);
+        database.close();
+    }
+}
@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem.dao.embedded;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedJournalTest {
+
+    private static final int FOUR_RECORDS = 4 * MappedJournal.RECORD_SIZE;
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedDatabase open() throws IOException {
+        return EmbeddedDatabase.open(new MappedJournal(tempDir, FOUR_RECORDS, false),
+                EmbeddedDatabase.DEFAULT_PARKING_SPOTS);
+    }
+
+    private Ticket newTicket(int parkingNumber, String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(1_000_000L));
+        return ticket;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void replayRebuildsSpotsAndTicketsAcrossSegments() throws Exception {
+        EmbeddedDatabase database = open();
+        Ticket ticket = newTicket(database.claimNextAvailableSlot(ParkingType.CAR), "ÉCOLE-42");
+        ticket.setId(database.insertTicket(ticket));
+        ticket.setPrice(2.25);
+        ticket.setOutTime(new Date(4_600_000L));
+        database.updateTicket(ticket);
+        database.setAvailable(1, true);
+        database.close();
+
+        EmbeddedDatabase reopened = open();
+
+        assertThat(segmentCount()).isEqualTo(3);
+        Ticket replayed = reopened.getLatestTicket("ÉCOLE-42");
+        assertThat(replayed.getPrice()).isEqualTo(2.25);
+        assertThat(replayed.getOutTime()).isEqualTo(new Date(4_600_000L));
+        assertThat(replayed.getParkingSpot().getParkingType()).isEqualTo(ParkingType.CAR);
+        assertThat(reopened.isAvailable(1)).isTrue();
+        assertThat(reopened.insertTicket(newTicket(2, "ABCDEF"))).isEqualTo(2);
+        reopened.close();
+    }
+
+    @Test
+    void tornLastRecordIsOverwritten() throws Exception {
+        EmbeddedDatabase database = open();
+        database.insertTicket(newTicket(1, "ABCDEF"));
+        database.close();
+        // the ticket is the 6th record: slot 1 of the second segment
+        try (RandomAccessFile segment = new RandomAccessFile(tempDir.resolve("journal-00000002.seg").toFile(), "rw")) {
+            segment.seek(MappedJournal.RECORD_SIZE + 40);
+            segment.writeLong(42L);
+        }
+
+        EmbeddedDatabase reopened = open();
+        assertThat(reopened.getTicketCount()).isZero();
+        reopened.insertTicket(newTicket(2, "GHIJKL"));
+        reopened.close();
+
+        assertThat(open().getOpenTicket("GHIJKL").getId()).isEqualTo(1);
+    }
+
+    @Test
+    void corruptedRecordBeforeTheTailIsReported() throws Exception {
+        EmbeddedDatabase database = open();
+        database.close();
+        try (RandomAccessFile segment = new RandomAccessFile(tempDir.resolve("journal-00000001.seg").toFile(), "rw")) {
+            segment.seek(8);
+            segment.writeInt(99);
+        }
+
+        assertThatThrownBy(this::open).isInstanceOf(IOException.class).hasMessageContaining("Corrupted");
+    }
+
+    @Test
+    void registrationNumberLongerThanTheRecordIsRejected() throws Exception {
+        EmbeddedDatabase database = open();
+
+        assertThatThrownBy(() -> database.insertTicket(newTicket(1, "ABCDEFGHIJK")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(database.getTicketCount()).isZero();
+        database.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.dao.embedded.EmbeddedDatabase;
+import com.parkit.parkingsystem.dao.embedded.FileJournal;
+import com.parkit.parkingsystem.integration.benchmark.GateLoadGenerator;
+import com.parkit.parkingsystem.service.ParkingBackend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Short runs of the load generator: eight gates on a small embedded lot, each with its own vehicles,
+ * then all drawing from the same vehicles so the same plate reaches two gates at once.
+ */
+class ConcurrentGatesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private GateLoadGenerator.Report runGates(boolean sharedPlates) throws Exception {
+        EmbeddedDatabase database = EmbeddedDatabase.open(new FileJournal(tempDir.resolve("parking.journal"), false),
+                GateLoadGenerator.newLot(40));
+
+        GateLoadGenerator.Report report = new GateLoadGenerator(ParkingBackend.embedded(database).newParkingService(),
+                8, 120, sharedPlates, 0).run(1000);
+        database.close();
+        return report;
+    }
+
+    @Test
+    void concurrentGatesKeepTheLotConsistent() throws Exception {
+        GateLoadGenerator.Report report = runGates(false);
+
+        assertThat(report.getOperations()).isPositive();
+        assertThat(report.getViolations()).isZero();
+    }
+
+    @Test
+    void sameVehicleAtTwoGatesIsParkedOnce() throws Exception {
+        GateLoadGenerator.Report report = runGates(true);
+
+        assertThat(report.getOperations()).isPositive();
+        assertThat(report.getViolations()).isZero();
+    }
+}
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.dao.embedded.EmbeddedDatabase;
+import com.parkit.parkingsystem.dao.embedded.FileJournal;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.EventReplay;
+import com.parkit.parkingsystem.service.ParkingBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventReplayTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedDatabase database;
+    private EventReplay eventReplay;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = EmbeddedDatabase.open(new FileJournal(tempDir.resolve("parking.journal"), false),
+                EmbeddedDatabase.DEFAULT_PARKING_SPOTS);
+        eventReplay = new EventReplay(ParkingBackend.embedded(database).newParkingService(), ZoneOffset.UTC);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    void replayUsesTheEventTimes() throws Exception {
+        String events = "# one day at the gate\n"
+                + "2024-05-02T08:00:00,ENTRY,ABCDEF,CAR\n"
+                + "2024-05-02T08:05:00,ENTRY,BIKE01,BIKE\n"
+                + "\n"
+                + "2024-05-02T10:30:00,EXIT,ABCDEF\n"
+                + "2024-05-02T11:00:00,ENTRY,ABCDEF,CAR\n"
+                + "2024-05-02T11:00:00,ENTRY,ABCDEF,CAR\n"
+                + "2024-05-02T12:00:00,EXIT,NOBODY\n";
+
+        EventReplay.Summary summary = eventReplay.replay(new StringReader(events));
+
+        assertThat(summary.getEventCount()).isEqualTo(6);
+        assertThat(summary.getEntries(EntryResult.Status.PARKED)).isEqualTo(3);
+        assertThat(summary.getEntries(EntryResult.Status.ALREADY_INSIDE)).isEqualTo(1);
+        assertThat(summary.getExits(ExitResult.Status.EXITED)).isEqualTo(1);
+        assertThat(summary.getExits(ExitResult.Status.NOT_INSIDE)).isEqualTo(1);
+        // 2.5 hours with the first half hour free
+        assertThat(summary.getRevenue()).isEqualTo(3.0);
+        Ticket ticket = database.getLatestTicket("ABCDEF");
+        assertThat(ticket.getInTime().toInstant())
+                .isEqualTo(LocalDateTime.parse("2024-05-02T11:00:00").atZone(ZoneId.of("UTC")).toInstant());
+        assertThat(summary.getEventsPerSecond()).isPositive();
+    }
+
+    @Test
+    void malformedEventsAreCountedAndSkipped() throws Exception {
+        String events = "2024-05-02T08:00:00,ENTRY,ABCDEF,TRUCK\n"
+                + "yesterday,EXIT,ABCDEF\n"
+                + "2024-05-02T08:00:00,PAY,ABCDEF\n"
+                + "2024-05-02T08:00:00,ENTRY,ABCDEF,CAR\n";
+
+        EventReplay.Summary summary = eventReplay.replay(new StringReader(events));
+
+        assertThat(summary.getMalformed()).isEqualTo(3);
+        assertThat(summary.getEntries(EntryResult.Status.PARKED)).isEqualTo(1);
+    }
+}
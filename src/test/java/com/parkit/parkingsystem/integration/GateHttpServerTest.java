@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.dao.embedded.EmbeddedDatabase;
+import com.parkit.parkingsystem.dao.embedded.FileJournal;
+import com.parkit.parkingsystem.service.GateHttpServer;
+import com.parkit.parkingsystem.service.ParkingBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GateHttpServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedDatabase database;
+    private GateHttpServer gateHttpServer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = EmbeddedDatabase.open(new FileJournal(tempDir.resolve("parking.journal"), false),
+                EmbeddedDatabase.DEFAULT_PARKING_SPOTS);
+        gateHttpServer = new GateHttpServer(ParkingBackend.embedded(database).newParkingService(),
+                new InetSocketAddress("localhost", 0), 4);
+        gateHttpServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        gateHttpServer.stop();
+        database.close();
+    }
+
+    private String[] call(String method, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:" + gateHttpServer.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        in.close();
+        return new String[]{String.valueOf(status), new String(body.toByteArray(), StandardCharsets.UTF_8)};
+    }
+
+    @Test
+    void entryQuoteAndExit() throws Exception {
+        String[] entry = call("POST", "/entry?vehicleRegNumber=AB%20123&parkingType=CAR");
+        assertThat(entry[0]).isEqualTo("200");
+        assertThat(entry[1]).contains("\"status\":\"PARKED\"", "\"vehicleRegNumber\":\"AB 123\"", "\"parkingNumber\":1");
+
+        assertThat(call("POST", "/entry?vehicleRegNumber=AB%20123&parkingType=CAR")[0]).isEqualTo("409");
+        assertThat(call("GET", "/occupancy")[1]).isEqualTo("{\"CAR\":{\"available\":2},\"BIKE\":{\"available\":2}}");
+
+        String[] quote = call("GET", "/quote?vehicleRegNumber=AB%20123");
+        assertThat(quote[0]).isEqualTo("200");
+        assertThat(quote[1]).contains("\"price\":0.0");
+        assertThat(database.isAvailable(1)).isFalse();
+
+        String[] exit = call("POST", "/exit?vehicleRegNumber=AB%20123");
+        assertThat(exit[0]).isEqualTo("200");
+        assertThat(exit[1]).contains("\"status\":\"EXITED\"");
+        assertThat(database.isAvailable(1)).isTrue();
+        assertThat(call("POST", "/exit?vehicleRegNumber=AB%20123")[0]).isEqualTo("404");
+    }
+
+    @Test
+    void invalidRequestsAreRejected() throws Exception {
+        assertThat(call("POST", "/entry?vehicleRegNumber=ABCDEF&parkingType=TRUCK")[0]).isEqualTo("400");
+        assertThat(call("POST", "/entry?parkingType=CAR")[0]).isEqualTo("400");
+        assertThat(call("GET", "/exit?vehicleRegNumber=ABCDEF")[0]).isEqualTo("405");
+        assertThat(call("GET", "/quote?vehicleRegNumber=NOBODY")[0]).isEqualTo("404");
+    }
+}
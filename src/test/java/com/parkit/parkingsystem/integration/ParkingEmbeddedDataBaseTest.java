@@ -0,0 +1,118 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.dao.TicketRepository;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedDatabase;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedParkingSpotRepository;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedTicketRepository;
+import com.parkit.parkingsystem.dao.embedded.FileJournal;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * The scenarios of ParkingDataBaseIT on the embedded engine, no MySQL needed.
+ */
+@ExtendWith(MockitoExtension.class)
+class ParkingEmbeddedDataBaseTest {
+
+    @TempDir
+    Path tempDir;
+    @Mock
+    private InputReaderUtil inputReaderUtil;
+
+    private EmbeddedDatabase database;
+    private ParkingSpotRepository parkingSpotRepository;
+    private TicketRepository ticketRepository;
+    private ParkingService parkingService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = EmbeddedDatabase.open(new FileJournal(tempDir.resolve("parking.journal"), false),
+                EmbeddedDatabase.DEFAULT_PARKING_SPOTS);
+        parkingSpotRepository = new EmbeddedParkingSpotRepository(database);
+        ticketRepository = new EmbeddedTicketRepository(database);
+        parkingService = new ParkingService(inputReaderUtil, parkingSpotRepository, ticketRepository);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        database.close();
+    }
+
+    private Date oneHourLater() {
+        return new Date(System.currentTimeMillis() + 60 * 60 * 1000);
+    }
+
+    @Test
+    void testParkingACar() {
+        parkingService.processIncomingVehicle();
+
+        Ticket ticket = ticketRepository.getTicket("ABCDEF");
+        assertThat(ticket.getParkingSpot().getId()).isEqualTo(1);
+        assertThat(database.isAvailable(1)).isFalse();
+        assertThat(parkingSpotRepository.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+    }
+
+    @Test
+    void testParkingLotExit() {
+        parkingService.processIncomingVehicle();
+
+        parkingService.processExitingVehicle(oneHourLater());
+
+        Ticket ticket = ticketRepository.getTicket("ABCDEF");
+        assertThat(ticket.getOutTime()).isNotNull();
+        assertThat(ticket.getPrice()).isPositive();
+        assertThat(database.isAvailable(1)).isTrue();
+    }
+
+    @Test
+    void testExitVehicleNotInside() {
+        parkingService.processIncomingVehicle();
+        Date outTime = oneHourLater();
+        parkingService.processExitingVehicle(outTime);
+
+        parkingService.processExitingVehicle(outTime);
+
+        assertThat(ticketRepository.inside("ABCDEF")).isFalse();
+        assertThat(database.getCompletedVisits("ABCDEF")).isEqualTo(1);
+    }
+
+    @Test
+    void testRecurringVehicle() {
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle(oneHourLater());
+
+        parkingService.processIncomingVehicle();
+
+        assertThat(ticketRepository.isRecurringVehicle("ABCDEF")).isTrue();
+        assertThat(ticketRepository.inside("ABCDEF")).isTrue();
+    }
+
+    @Test
+    void vehicleAlreadyInside() {
+        parkingService.processIncomingVehicle();
+
+        parkingService.processIncomingVehicle();
+
+        assertThat(ticketRepository.inside("ABCDEF")).isTrue();
+        assertThat(database.getTicketCount()).isEqualTo(1);
+        assertThat(parkingSpotRepository.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,118 @@
+package com.parkit.parkingsystem.integration.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedDatabase;
+import com.parkit.parkingsystem.dao.embedded.FileJournal;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.GateHttpServer;
+import com.parkit.parkingsystem.service.ParkingBackend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the gate API on localhost, on an embedded lot with one car spot per client.
+ * Every client runs entry, quote and exit cycles for its own vehicle; the latency of every request is recorded.
+ * Usage: GateHttpLoadBenchmark [clients] [cyclesPerClient] [serverThreads]
+ */
+public class GateHttpLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int cycles = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int serverThreads = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        // the default of 5 pooled connections per host would serialize the clients
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        Path directory = Files.createTempDirectory("gate-load");
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int parkingNumber = 1; parkingNumber <= clients; parkingNumber++) {
+            parkingSpots.add(new ParkingSpot(parkingNumber, ParkingType.CAR, true));
+        }
+        EmbeddedDatabase database = EmbeddedDatabase.open(
+                new FileJournal(directory.resolve("parking.journal"), false), parkingSpots);
+        GateHttpServer gateHttpServer = new GateHttpServer(ParkingBackend.embedded(database).newParkingService(),
+                new InetSocketAddress("localhost", 0), serverThreads);
+        gateHttpServer.start();
+        String baseUrl = "http://localhost:" + gateHttpServer.getPort();
+
+        long[][] latencies = new long[clients][];
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int client = 0; client < clients; client++) {
+            int clientNumber = client;
+            Thread thread = new Thread(() -> {
+                String plate = "LOAD" + clientNumber;
+                long[] clientLatencies = new long[cycles * 3];
+                int count = 0;
+                ready.countDown();
+                try {
+                    go.await();
+                    for (int cycle = 0; cycle < cycles; cycle++) {
+                        clientLatencies[count++] = timedCall(baseUrl + "/entry?parkingType=CAR&vehicleRegNumber=" + plate, "POST", failures);
+                        clientLatencies[count++] = timedCall(baseUrl + "/quote?vehicleRegNumber=" + plate, "GET", failures);
+                        clientLatencies[count++] = timedCall(baseUrl + "/exit?vehicleRegNumber=" + plate, "POST", failures);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                latencies[clientNumber] = Arrays.copyOf(clientLatencies, count);
+            }, "gate-client-" + client);
+            threads.add(thread);
+            thread.start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d clients, %d requests in %.2f s: %.0f requests/s, %d failures%n",
+                clients, all.length, elapsed / 1e9, all.length * 1e9 / elapsed, failures.get());
+        System.out.printf("latency p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n",
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1] / 1e6);
+
+        gateHttpServer.stop();
+        database.close();
+    }
+
+    private static long timedCall(String url, String method, AtomicLong failures) {
+        long start = System.nanoTime();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            int status = connection.getResponseCode();
+            // drain the body so the connection goes back to the keep-alive pool
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                while (in.read() != -1) {
+                    // skip
+                }
+            }
+            if (status != 200) {
+                failures.incrementAndGet();
+            }
+        } catch (IOException e) {
+            failures.incrementAndGet();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,291 @@
+package com.parkit.parkingsystem.integration.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.embedded.EmbeddedDatabase;
+import com.parkit.parkingsystem.dao.embedded.FileJournal;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.ParkingBackend;
+import com.parkit.parkingsystem.service.ParkingService;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress harness for {@link ParkingService}: N gate threads send entries and exits at the same time
+ * while the results are checked against what the gates have seen so far.
+ * Reported invariant violations: a spot given to two vehicles, a vehicle parked twice,
+ * an exit of a vehicle that is not parked, and an available count outside [0, initial count].
+ *
+ * Runs on an embedded lot in a temporary directory, or on the storage chosen by the parkit.* system
+ * properties when parkit.storage is set (see {@link ParkingBackend}).
+ * With shared plates every gate draws from the same vehicles, so two gates can see the same plate at once.
+ * Usage: GateLoadGenerator [gates] [lotSize] [seconds] [vehicles] [sharedPlates] [thinkTimeMillis]
+ */
+public class GateLoadGenerator {
+
+    private final ParkingService parkingService;
+    private final int gates;
+    private final int vehicles;
+    private final boolean sharedPlates;
+    private final long thinkTimeMillis;
+
+    private final Map<Integer, String> spotOwners = new ConcurrentHashMap<>();
+    private final Map<String, ParkingSpot> parkedVehicles = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> departures = new ConcurrentLinkedQueue<>();
+    private final Map<ParkingType, Integer> initialAvailable = new EnumMap<>(ParkingType.class);
+    private final AtomicLong violations = new AtomicLong();
+    private final AtomicLong simulatedClock = new AtomicLong(1_700_000_000_000L);
+
+    public GateLoadGenerator(ParkingService parkingService, int gates, int vehicles, boolean sharedPlates,
+                             long thinkTimeMillis) {
+        this.parkingService = parkingService;
+        this.gates = gates;
+        this.vehicles = vehicles;
+        this.sharedPlates = sharedPlates;
+        this.thinkTimeMillis = thinkTimeMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int gates = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int lotSize = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int vehicles = args.length > 3 ? Integer.parseInt(args[3]) : lotSize * 2;
+        boolean sharedPlates = args.length <= 4 || Boolean.parseBoolean(args[4]);
+        long thinkTimeMillis = args.length > 5 ? Long.parseLong(args[5]) : 0;
+
+        ParkingBackend parkingBackend;
+        if (System.getProperty(ParkingBackend.STORAGE_PROPERTY) != null) {
+            parkingBackend = ParkingBackend.fromSystemProperties();
+        } else {
+            parkingBackend = ParkingBackend.embedded(EmbeddedDatabase.open(
+                    new FileJournal(Files.createTempDirectory("gate-load").resolve("parking.journal"), false),
+                    newLot(lotSize)));
+        }
+        Report report = new GateLoadGenerator(parkingBackend.newParkingService(), gates, vehicles, sharedPlates,
+                thinkTimeMillis).run(TimeUnit.SECONDS.toMillis(seconds));
+        System.out.println(report);
+        parkingBackend.shutdown();
+    }
+
+    /**
+     * A lot of four car spots for one bike spot.
+     */
+    public static List<ParkingSpot> newLot(int lotSize) {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int parkingNumber = 1; parkingNumber <= lotSize; parkingNumber++) {
+            parkingSpots.add(new ParkingSpot(parkingNumber, parkingNumber % 5 == 0 ? ParkingType.BIKE : ParkingType.CAR, true));
+        }
+        return parkingSpots;
+    }
+
+    public Report run(long durationMillis) throws InterruptedException {
+        int capacity = 0;
+        for (ParkingType parkingType : ParkingType.values()) {
+            initialAvailable.put(parkingType, parkingService.getAvailableSlotCount(parkingType));
+            capacity += initialAvailable.get(parkingType);
+        }
+        int lotCapacity = Math.max(1, capacity);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LatencyRecorder[] entryLatencies = new LatencyRecorder[gates];
+        LatencyRecorder[] exitLatencies = new LatencyRecorder[gates];
+        List<Thread> threads = new ArrayList<>();
+        for (int gate = 0; gate < gates; gate++) {
+            int gateNumber = gate;
+            entryLatencies[gate] = new LatencyRecorder();
+            exitLatencies[gate] = new LatencyRecorder();
+            threads.add(new Thread(() -> runGate(gateNumber, lotCapacity, running, entryLatencies[gateNumber],
+                    exitLatencies[gateNumber]), "gate-" + gate));
+        }
+        Thread monitor = new Thread(() -> monitorAvailability(running), "availability-monitor");
+
+        long start = System.nanoTime();
+        monitor.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(durationMillis);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        monitor.join();
+        long elapsed = System.nanoTime() - start;
+        checkFinalAvailability();
+        return new Report(elapsed, LatencyRecorder.merge(entryLatencies), LatencyRecorder.merge(exitLatencies),
+                violations.get());
+    }
+
+    private void runGate(int gate, int lotCapacity, AtomicBoolean running, LatencyRecorder entryLatencies,
+                         LatencyRecorder exitLatencies) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running.get()) {
+            // the fuller the lot, the more likely the next vehicle at the gate is leaving; vehicles leave in arrival order
+            String vehicleRegNumber = random.nextInt(lotCapacity) < parkedVehicles.size() ? departures.poll() : null;
+            if (vehicleRegNumber != null) {
+                exitVehicle(vehicleRegNumber, exitLatencies);
+            } else {
+                enterVehicle(gate, random, entryLatencies);
+            }
+            if (thinkTimeMillis > 0) {
+                try {
+                    Thread.sleep((long) (-Math.log(1 - random.nextDouble()) * thinkTimeMillis));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void enterVehicle(int gate, ThreadLocalRandom random, LatencyRecorder latencies) {
+        int vehicle = sharedPlates ? random.nextInt(vehicles) : gate + gates * random.nextInt(Math.max(1, vehicles / gates));
+        String vehicleRegNumber = "LG-" + vehicle;
+        ParkingType parkingType = vehicle % 5 == 0 ? ParkingType.BIKE : ParkingType.CAR;
+        long start = System.nanoTime();
+        EntryResult entryResult = parkingService.enterVehicle(parkingType, vehicleRegNumber,
+                new Date(simulatedClock.addAndGet(1000)));
+        latencies.record(System.nanoTime() - start);
+        if (entryResult.getStatus() != EntryResult.Status.PARKED) {
+            return;
+        }
+        ParkingSpot parkingSpot = entryResult.getTicket().getParkingSpot();
+        if (parkedVehicles.putIfAbsent(vehicleRegNumber, parkingSpot) != null) {
+            violation("Vehicle " + vehicleRegNumber + " parked while already inside");
+            return;
+        }
+        String owner = spotOwners.putIfAbsent(parkingSpot.getId(), vehicleRegNumber);
+        if (owner != null) {
+            violation("Spot " + parkingSpot.getId() + " given to " + vehicleRegNumber + " while " + owner + " is on it");
+        }
+        departures.add(vehicleRegNumber);
+    }
+
+    // the vehicle is taken off the books before the exit, so a gate never sees it as parked once the spot is free
+    private void exitVehicle(String vehicleRegNumber, LatencyRecorder latencies) {
+        ParkingSpot parkingSpot = parkedVehicles.remove(vehicleRegNumber);
+        if (parkingSpot == null) {
+            return;
+        }
+        spotOwners.remove(parkingSpot.getId(), vehicleRegNumber);
+        long start = System.nanoTime();
+        ExitResult exitResult = parkingService.exitVehicle(vehicleRegNumber, new Date(simulatedClock.addAndGet(1000)));
+        latencies.record(System.nanoTime() - start);
+        if (exitResult.getStatus() == ExitResult.Status.NOT_INSIDE) {
+            violation("Vehicle " + vehicleRegNumber + " parked on spot " + parkingSpot.getId() + " was not found at exit");
+        } else if (exitResult.getStatus() == ExitResult.Status.EXITED
+                && exitResult.getTicket().getParkingSpot().getId() != parkingSpot.getId()) {
+            violation("Vehicle " + vehicleRegNumber + " left spot " + exitResult.getTicket().getParkingSpot().getId()
+                    + " but was parked on " + parkingSpot.getId());
+        }
+    }
+
+    private void monitorAvailability(AtomicBoolean running) {
+        while (running.get()) {
+            for (ParkingType parkingType : ParkingType.values()) {
+                int available = parkingService.getAvailableSlotCount(parkingType);
+                if (available < 0 || available > initialAvailable.get(parkingType)) {
+                    violation(parkingType + " availability out of range: " + available);
+                }
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void checkFinalAvailability() {
+        Map<ParkingType, Integer> parked = new EnumMap<>(ParkingType.class);
+        for (ParkingSpot parkingSpot : parkedVehicles.values()) {
+            parked.merge(parkingSpot.getParkingType(), 1, Integer::sum);
+        }
+        for (ParkingType parkingType : ParkingType.values()) {
+            int expected = initialAvailable.get(parkingType) - parked.getOrDefault(parkingType, 0);
+            int available = parkingService.getAvailableSlotCount(parkingType);
+            if (available != expected) {
+                violation(parkingType + " availability is " + available + " at the end, expected " + expected);
+            }
+        }
+    }
+
+    private void violation(String message) {
+        violations.incrementAndGet();
+        System.err.println("INVARIANT VIOLATION: " + message);
+    }
+
+    public static class Report {
+        private final long elapsedNanos;
+        private final long[] entryLatencies;
+        private final long[] exitLatencies;
+        private final long violations;
+
+        Report(long elapsedNanos, long[] entryLatencies, long[] exitLatencies, long violations) {
+            this.elapsedNanos = elapsedNanos;
+            this.entryLatencies = entryLatencies;
+            this.exitLatencies = exitLatencies;
+            this.violations = violations;
+        }
+
+        public long getOperations() {
+            return entryLatencies.length + exitLatencies.length;
+        }
+
+        public long getViolations() {
+            return violations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d operations in %.2f s: %.0f operations/s, %d invariant violations%n%s%n%s",
+                    getOperations(), elapsedNanos / 1e9, getOperations() * 1e9 / elapsedNanos, violations,
+                    latencyLine("entry", entryLatencies), latencyLine("exit ", exitLatencies));
+        }
+
+        private static String latencyLine(String operation, long[] sorted) {
+            if (sorted.length == 0) {
+                return operation + ": no calls";
+            }
+            return String.format("%s: %d calls, p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, max %.3f ms", operation,
+                    sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    private static final class LatencyRecorder {
+        private long[] values = new long[1024];
+        private int count;
+
+        void record(long nanos) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = nanos;
+        }
+
+        static long[] merge(LatencyRecorder[] recorders) {
+            long[] merged = Arrays.stream(recorders)
+                    .flatMapToLong(recorder -> Arrays.stream(recorder.values, 0, recorder.count)).toArray();
+            Arrays.sort(merged);
+            return merged;
+        }
+    }
+}
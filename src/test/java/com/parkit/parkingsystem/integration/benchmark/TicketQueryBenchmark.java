@@ -0,0 +1,141 @@
+package com.parkit.parkingsystem.integration.benchmark;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Latency of the ticket and parking lookups before and after the V2 index migration,
+ * on a seeded test database (10M tickets by default).
+ * Run manually against the test DB: it truncates the ticket table.
+ * Usage: TicketQueryBenchmark [ticketRows] [iterations]
+ */
+public class TicketQueryBenchmark {
+
+    private static final String SEED_URL = "jdbc:mysql://localhost:3306/test?rewriteBatchedStatements=true";
+    private static final String[] V2_INDEXES = {
+            "ticket:IDX_TICKET_VEHICLE_OUT_TIME", "ticket:IDX_TICKET_VEHICLE_IN_TIME",
+            "ticket:IDX_TICKET_OUT_TIME", "parking:IDX_PARKING_TYPE_AVAILABLE"};
+    private static final int VISITS_PER_VEHICLE = 10;
+    private static final int BATCH_SIZE = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long vehicles = Math.max(1, rows / VISITS_PER_VEHICLE);
+
+        DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+        new SchemaMigrator(dataBaseTestConfig).migrate();
+        seed(rows, vehicles);
+
+        dropQueryIndexes(dataBaseTestConfig);
+        System.out.println("Without indexes (" + rows + " tickets)");
+        measureAll(dataBaseTestConfig, vehicles, iterations);
+
+        new SchemaMigrator(dataBaseTestConfig).migrate();
+        System.out.println("With indexes (" + rows + " tickets)");
+        measureAll(dataBaseTestConfig, vehicles, iterations);
+
+        dataBaseTestConfig.shutdown();
+    }
+
+    // every vehicle gets VISITS_PER_VEHICLE tickets; the last visit of one vehicle in a hundred is still open
+    private static void seed(long rows, long vehicles) throws SQLException {
+        try (Connection con = DriverManager.getConnection(SEED_URL, "root", "rootroot")) {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("truncate table ticket");
+            }
+            con.setAutoCommit(false);
+            long start = System.currentTimeMillis();
+            long base = start - rows * 60_000L;
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+                for (long i = 0; i < rows; i++) {
+                    long vehicle = i % vehicles;
+                    long visit = i / vehicles;
+                    Timestamp inTime = new Timestamp(base + i * 60_000L);
+                    boolean open = visit == VISITS_PER_VEHICLE - 1 && vehicle % 100 == 0;
+                    ps.setInt(1, (int) (i % 5) + 1);
+                    ps.setString(2, plate(vehicle));
+                    ps.setDouble(3, open ? 0 : 1.5);
+                    ps.setTimestamp(4, inTime);
+                    ps.setTimestamp(5, open ? null : new Timestamp(inTime.getTime() + 3_600_000L));
+                    ps.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        ps.executeBatch();
+                        con.commit();
+                    }
+                }
+                ps.executeBatch();
+                con.commit();
+            }
+            System.out.println("Seeded " + rows + " tickets in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    private static void dropQueryIndexes(DataBaseTestConfig dataBaseTestConfig) throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection(); Statement statement = con.createStatement()) {
+            for (String index : V2_INDEXES) {
+                String[] tableAndName = index.split(":");
+                try (ResultSet rs = statement.executeQuery("select count(*) from information_schema.statistics"
+                        + " where table_schema = database() and table_name = '" + tableAndName[0]
+                        + "' and index_name = '" + tableAndName[1] + "'")) {
+                    rs.next();
+                    if (rs.getInt(1) == 0) {
+                        continue;
+                    }
+                }
+                statement.execute("alter table " + tableAndName[0] + " drop index " + tableAndName[1]);
+            }
+            statement.execute("delete from schema_version where VERSION >= 2");
+        }
+    }
+
+    private static void measureAll(DataBaseTestConfig dataBaseTestConfig, long vehicles, int iterations)
+            throws Exception {
+        measure(dataBaseTestConfig, "GET_TICKET", DBConstants.GET_TICKET, vehicles, iterations);
+        measure(dataBaseTestConfig, "RECURRING_VEHICLE", DBConstants.RECURRING_VEHICLE, vehicles, iterations);
+        measure(dataBaseTestConfig, "INSIDE", DBConstants.INSIDE, vehicles, iterations);
+        measure(dataBaseTestConfig, "GET_OPEN_TICKET", DBConstants.GET_OPEN_TICKET, vehicles, iterations);
+        measure(dataBaseTestConfig, "GET_NEXT_PARKING_SPOT", DBConstants.GET_NEXT_PARKING_SPOT, vehicles, iterations);
+    }
+
+    private static void measure(DataBaseTestConfig dataBaseTestConfig, String name, String sql, long vehicles,
+                                int iterations) throws Exception {
+        Random random = new Random(42);
+        long[] nanos = new long[iterations];
+        try (Connection con = dataBaseTestConfig.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < iterations; i++) {
+                if (sql.equals(DBConstants.GET_NEXT_PARKING_SPOT)) {
+                    ps.setString(1, i % 2 == 0 ? "CAR" : "BIKE");
+                } else {
+                    ps.setString(1, plate((long) (random.nextDouble() * vehicles)));
+                }
+                long start = System.nanoTime();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getObject(1);
+                    }
+                }
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        double average = Arrays.stream(nanos).average().orElse(0) / 1_000_000.0;
+        System.out.println(String.format("  %-22s avg %10.3f ms   p50 %10.3f ms   p99 %10.3f ms", name, average,
+                nanos[iterations / 2] / 1_000_000.0, nanos[Math.min(iterations - 1, iterations * 99 / 100)] / 1_000_000.0));
+    }
+
+    private static String plate(long vehicle) {
+        return String.format("BM%08d", vehicle);
+    }
+}
@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactTicketTest {
+
+    private static Ticket ticket(String vehicleRegNumber, Date outTime, double price) {
+        Ticket ticket = new Ticket();
+        ticket.setId(42);
+        ticket.setParkingSpot(new ParkingSpot(3, ParkingType.BIKE, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(1_700_000_000_000L));
+        ticket.setOutTime(outTime);
+        ticket.setPrice(price);
+        return ticket;
+    }
+
+    @Test
+    void closedTicketSurvivesTheRoundTrip() {
+        Ticket closed = ticket("AB-123-CD", new Date(1_700_000_000_000L + 5_400_000), 0.71);
+
+        CompactTicket compact = CompactTicket.of(closed);
+        Ticket copy = compact.toTicket();
+
+        assertThat(compact.isOpen()).isFalse();
+        assertThat(compact.getPriceCents()).isEqualTo(71);
+        assertThat(copy.getId()).isEqualTo(42);
+        assertThat(copy.getParkingSpot().getId()).isEqualTo(3);
+        assertThat(copy.getParkingSpot().getParkingType()).isEqualTo(ParkingType.BIKE);
+        assertThat(copy.getVehicleRegNumber()).isEqualTo("AB-123-CD");
+        assertThat(copy.getInTime()).isEqualTo(closed.getInTime());
+        assertThat(copy.getOutTime()).isEqualTo(closed.getOutTime());
+        assertThat(copy.getPrice()).isEqualTo(0.71);
+    }
+
+    @Test
+    void openTicketHasNoOutTime() {
+        CompactTicket compact = CompactTicket.of(ticket("ABCDEF", null, 0));
+
+        assertThat(compact.isOpen()).isTrue();
+        assertThat(compact.getOutTime()).isEqualTo(CompactTicket.NO_TIME);
+        assertThat(compact.toTicket().getOutTime()).isNull();
+        assertThat(compact.withExit(1_700_000_100_000L, 150).toTicket().getPrice()).isEqualTo(1.5);
+    }
+
+    @Test
+    void platesArePackedWhenTheyFitAndKeptOtherwise() {
+        String[] packable = {"A", "0", "-", "zz", "AB-123-CD", "ab-123-cd", "ZZZZZZZZZZ", "9999999999"};
+        for (String plate : packable) {
+            assertThat(CompactTicket.packPlate(plate)).as(plate).isNotZero();
+            assertThat(CompactTicket.unpackPlate(CompactTicket.packPlate(plate))).isEqualTo(plate);
+        }
+        String[] unpackable = {"", "AB 123 CD", "ABCDEFGHIJK", "ÉTÉ-01", "AB_12"};
+        for (String plate : unpackable) {
+            assertThat(CompactTicket.packPlate(plate)).as(plate).isZero();
+            assertThat(CompactTicket.of(ticket(plate, null, 0)).getVehicleRegNumber()).isEqualTo(plate);
+        }
+        assertThat(CompactTicket.packPlate(null)).isZero();
+    }
+
+    @Test
+    void compactTicketsShareOneSpotInstance() throws Exception {
+        CompactTicket first = CompactTicket.of(ticket("ABCDEF", null, 0));
+        CompactTicket second = CompactTicket.of(ticket("GHIJKL", null, 0));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<ParkingSpotRef>> concurrentLookups = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            concurrentLookups.add(executor.submit(() -> ParkingSpotRef.of(3, ParkingType.BIKE)));
+        }
+        executor.shutdown();
+
+        ParkingSpotRef parkingSpot = first.getParkingSpot();
+
+        assertThat(second.getParkingSpot()).isSameAs(parkingSpot);
+        for (Future<ParkingSpotRef> lookup : concurrentLookups) {
+            assertThat(lookup.get()).isSameAs(parkingSpot);
+        }
+        ParkingSpot own = first.toTicket().getParkingSpot();
+        own.setAvailable(true);
+        assertThat(own.getId()).isEqualTo(3);
+        assertThat(first.toTicket().getParkingSpot().isAvailable()).isFalse();
+    }
+}
@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotRepository;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsTest {
+
+    @Test
+    void percentilesStayWithinTheirBucket() {
+        OperationStats stats = new OperationStats("test");
+        for (int micros = 1; micros <= 1000; micros++) {
+            stats.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        stats.recordError();
+
+        assertThat(stats.getCount()).isEqualTo(1000);
+        assertThat(stats.getErrorCount()).isEqualTo(1);
+        assertThat(stats.getMeanMicros()).isEqualTo(500.5);
+        assertThat(stats.getMaxMicros()).isEqualTo(1000);
+        assertThat(stats.getP50Micros()).isBetween(500L, 625L);
+        assertThat(stats.getP99Micros()).isBetween(990L, 1000L);
+        assertThat(stats.getP999Micros()).isEqualTo(1000);
+
+        stats.reset();
+        assertThat(stats.getCount()).isZero();
+        assertThat(stats.getP99Micros()).isZero();
+    }
+
+    @Test
+    void bucketBoundsCoverEveryLatency() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int bucket = OperationStats.bucketOf(micros);
+            assertThat(OperationStats.upperBoundOf(bucket)).isGreaterThanOrEqualTo(micros);
+            assertThat(bucket == 0 || OperationStats.upperBoundOf(bucket - 1) < micros).isTrue();
+        }
+    }
+
+    @Test
+    void instrumentedRepositoryRecordsCallsAndErrors() throws Exception {
+        ParkingSpotRepository repository = Metrics.instrument(ParkingSpotRepository.class, new FailingRepository());
+
+        assertThat(repository.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+        assertThatThrownBy(() -> repository.updateParking(new ParkingSpot(1, ParkingType.CAR, true)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(Metrics.get("FailingRepository.getNextAvailableSlot").getCount()).isEqualTo(1);
+        assertThat(Metrics.get("FailingRepository.updateParking").getErrorCount()).isEqualTo(1);
+        assertThat(Metrics.dump()).contains("FailingRepository.getNextAvailableSlot count=1");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.parkit.parkingsystem:type=Operation,name="
+                + ObjectName.quote("FailingRepository.updateParking"));
+        assertThat(server.getAttribute(name, "ErrorCount")).isEqualTo(1L);
+    }
+
+    private static class FailingRepository implements ParkingSpotRepository {
+
+        @Override
+        public int getNextAvailableSlot(ParkingType parkingType) {
+            return 1;
+        }
+
+        @Override
+        public int claimNextAvailableSlot(ParkingType parkingType) {
+            return 1;
+        }
+
+        @Override
+        public boolean updateParking(ParkingSpot parkingSpot) {
+            throw new IllegalStateException("disk full");
+        }
+
+        @Override
+        public int getAvailableSlotCount(ParkingType parkingType) {
+            return 0;
+        }
+    }
+}